@@ -1,5 +1,9 @@
 package blockingqueue;
 
+import instrumentation.Counter;
+import instrumentation.Metrics;
+import instrumentation.QueueWaitEvent;
+
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.concurrent.TimeoutException;
@@ -18,6 +22,9 @@ import java.util.concurrent.TimeoutException;
  */
 
 public class BlockingQueue<T> implements IBlockingQueue<T> {
+    private static final Counter PUTS = Metrics.counter("queue.puts");
+    private static final Counter TAKES = Metrics.counter("queue.takes");
+
     // Should fields be volatile?
     // No need with synchronized methods as they provide happens-before guarantees.
     private int size;
@@ -37,19 +44,39 @@ public class BlockingQueue<T> implements IBlockingQueue<T> {
         if (item == null) {
             throw new NullPointerException("Cannot add null item to queue");
         }
-        while (this.size == this.capacity) {
-            System.out.println("Queue is full, waiting until capacity is available");
+        if (this.size == this.capacity) {
+            QueueWaitEvent waitEvent = QueueWaitEvent.put(capacity);
             try {
-                wait();
-            } catch (InterruptedException e) {
-                notifyAll(); // Signal other waiting threads before leaving
-                throw e;
+                while (this.size == this.capacity) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        notifyAll(); // Signal other waiting threads before leaving
+                        throw e;
+                    }
+                }
+            } finally {
+                waitEvent.finish();
             }
         }
         queue.add(item);
         this.size++;
-        System.out.println("Added item to the queue: " + item);
+        PUTS.increment();
+        notifyAll();
+    }
+
+    public synchronized boolean offer(T item) {
+        if (item == null) {
+            throw new NullPointerException("Cannot add null item to queue");
+        }
+        if (this.size == this.capacity) {
+            return false;
+        }
+        queue.add(item);
+        this.size++;
+        PUTS.increment();
         notifyAll();
+        return true;
     }
 
     public synchronized T take() throws InterruptedException {
@@ -59,18 +86,24 @@ public class BlockingQueue<T> implements IBlockingQueue<T> {
             Also, after waking up, another thread might have taken the last item,
             so we need to recheck.
          */
-        while (this.size == 0) {
-            System.out.println("Queue is empty, waiting until atleast one element is present");
+        if (this.size == 0) {
+            QueueWaitEvent waitEvent = QueueWaitEvent.take(capacity);
             try {
-                wait();
-            } catch (InterruptedException e) {
-                notifyAll(); // Signal other waiting threads before leaving
-                throw e;
+                while (this.size == 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        notifyAll(); // Signal other waiting threads before leaving
+                        throw e;
+                    }
+                }
+            } finally {
+                waitEvent.finish();
             }
         }
         T item = queue.remove();
         this.size--;
-        System.out.println("Removed item from the queue: " + item);
+        TAKES.increment();
         /*
           Why use notify() instead of notifyAll()?
             notify() wakes up one thread - more efficient but might cause starvation
@@ -87,6 +120,26 @@ public class BlockingQueue<T> implements IBlockingQueue<T> {
         return null;
     }
 
+    public synchronized T poll() {
+        if (this.size == 0) {
+            return null;
+        }
+        T item = queue.remove();
+        this.size--;
+        TAKES.increment();
+        notifyAll();
+        return item;
+    }
+
+    public synchronized boolean remove(T item) {
+        if (!queue.remove(item)) {
+            return false;
+        }
+        this.size--;
+        notifyAll();
+        return true;
+    }
+
     public synchronized T peek() {
         if (isEmpty()) {
             return null;
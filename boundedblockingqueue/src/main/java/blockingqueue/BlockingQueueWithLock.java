@@ -1,5 +1,9 @@
 package blockingqueue;
 
+import instrumentation.Counter;
+import instrumentation.Metrics;
+import instrumentation.QueueWaitEvent;
+
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
@@ -8,6 +12,9 @@ import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class BlockingQueueWithLock<T> implements IBlockingQueue<T> {
+    private static final Counter PUTS = Metrics.counter("queue.puts");
+    private static final Counter TAKES = Metrics.counter("queue.takes");
+
     private int size;
     private final int capacity;
     private final Queue<T> queue;
@@ -39,31 +46,65 @@ public class BlockingQueueWithLock<T> implements IBlockingQueue<T> {
         }
         lock.lock(); // Like entering synchronized block
         try {
-            while (this.size == this.capacity) {
-                // Intuition: We want the queue to be "notFull" when we put an item
-                notFull.await(); // Like wait() - wait until queue isn't full
+            if (this.size == this.capacity) {
+                QueueWaitEvent waitEvent = QueueWaitEvent.put(capacity);
+                try {
+                    while (this.size == this.capacity) {
+                        // Intuition: We want the queue to be "notFull" when we put an item
+                        notFull.await(); // Like wait() - wait until queue isn't full
+                    }
+                } finally {
+                    waitEvent.finish();
+                }
             }
             queue.add(item);
             this.size++;
-            System.out.println("Added item to the queue: " + item);
+            PUTS.increment();
             notEmpty.signal(); // Like notify() - tell consumers there's an item
         } finally {
             lock.unlock(); // ALWAYS unlock in finally
         }
     }
 
+    // non-blocking put, returns false instead of waiting when the queue is full
+    @Override
+    public boolean offer(T item) {
+        if (item == null) {
+            throw new NullPointerException("Cannot add null item to queue");
+        }
+        lock.lock();
+        try {
+            if (this.size == this.capacity) {
+                return false;
+            }
+            queue.add(item);
+            this.size++;
+            PUTS.increment();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public T take() throws InterruptedException {
         lock.lock();
         try {
-            while (this.size == 0) {
-                System.out.println("Queue is empty, waiting until at-least one element is present");
-                // Intuition: We want the queue to be notEmpty when we want to take an item
-                notEmpty.await(); // Wait until queue isn't empty
+            if (this.size == 0) {
+                QueueWaitEvent waitEvent = QueueWaitEvent.take(capacity);
+                try {
+                    while (this.size == 0) {
+                        // Intuition: We want the queue to be notEmpty when we want to take an item
+                        notEmpty.await(); // Wait until queue isn't empty
+                    }
+                } finally {
+                    waitEvent.finish();
+                }
             }
             T item = queue.remove();
             this.size--;
-            System.out.println("Removed item from the queue: " + item);
+            TAKES.increment();
             notFull.signal(); // Tell producers there's space
             return item;
         } finally {
@@ -75,21 +116,46 @@ public class BlockingQueueWithLock<T> implements IBlockingQueue<T> {
     public T take(long timeoutInMillis) throws InterruptedException, TimeoutException {
         lock.lock();
         try {
-            long endTime = System.currentTimeMillis() + timeoutInMillis;
-            while (this.size == 0) {
-                System.out.println("Queue is empty, waiting until at-least one element is present");
-                long remainingTime = endTime - System.currentTimeMillis();
-                if (remainingTime <= 0) {
-                    throw new TimeoutException("Timeout waiting for item from queue");
-                }
-                boolean signal = notEmpty.await(remainingTime, TimeUnit.MILLISECONDS);
-                if (!signal && this.size == 0) {
-                    throw new TimeoutException("Timeout waiting for item from queue");
+            if (this.size == 0) {
+                // Timeouts are recorded as waits too, they are the ones worth looking at
+                QueueWaitEvent waitEvent = QueueWaitEvent.take(capacity);
+                try {
+                    long endTime = System.currentTimeMillis() + timeoutInMillis;
+                    while (this.size == 0) {
+                        long remainingTime = endTime - System.currentTimeMillis();
+                        if (remainingTime <= 0) {
+                            throw new TimeoutException("Timeout waiting for item from queue");
+                        }
+                        boolean signal = notEmpty.await(remainingTime, TimeUnit.MILLISECONDS);
+                        if (!signal && this.size == 0) {
+                            throw new TimeoutException("Timeout waiting for item from queue");
+                        }
+                    }
+                } finally {
+                    waitEvent.finish();
                 }
             }
             T item = queue.remove();
             this.size--;
-            System.out.println("Removed item from the queue: " + item);
+            TAKES.increment();
+            notFull.signal();
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // non-blocking take, returns null instead of waiting when the queue is empty
+    @Override
+    public T poll() {
+        lock.lock();
+        try {
+            if (this.size == 0) {
+                return null;
+            }
+            T item = queue.remove();
+            this.size--;
+            TAKES.increment();
             notFull.signal();
             return item;
         } finally {
@@ -97,6 +163,21 @@ public class BlockingQueueWithLock<T> implements IBlockingQueue<T> {
         }
     }
 
+    @Override
+    public boolean remove(T item) {
+        lock.lock();
+        try {
+            if (!queue.remove(item)) {
+                return false;
+            }
+            this.size--;
+            notFull.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     // non-blocking peek
     @Override
     public T peek() {
@@ -4,9 +4,13 @@ import java.util.concurrent.TimeoutException;
 
 public interface IBlockingQueue<T> {
     void put(T item) throws InterruptedException;
+    boolean offer(T item);
     T take() throws InterruptedException;
     T take(long timeoutInMillis) throws InterruptedException, TimeoutException;
+    T poll();
     T peek();
+    // Takes the item out if it is still queued, false if a consumer already got it
+    boolean remove(T item);
     boolean isEmpty();
     int getSize();
     int getCapacity();
@@ -0,0 +1,50 @@
+package cache;
+
+// Point-in-time snapshot of the cache counters
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long loads;
+    private final long loadFailures;
+    private final long evictions;
+
+    CacheStats(long hits, long misses, long loads, long loadFailures, long evictions) {
+        this.hits = hits;
+        this.misses = misses;
+        this.loads = loads;
+        this.loadFailures = loadFailures;
+        this.evictions = evictions;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getLoads() {
+        return loads;
+    }
+
+    public long getLoadFailures() {
+        return loadFailures;
+    }
+
+    // Entries removed by the size or weight bound or by expiry, not by invalidate()
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, hitRate=%.3f, loads=%d, loadFailures=%d, evictions=%d",
+                hits, misses, hitRate(), loads, loadFailures, evictions);
+    }
+}
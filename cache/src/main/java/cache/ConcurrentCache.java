@@ -0,0 +1,574 @@
+package cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Bounded cache with W-TinyLFU eviction.
+ * <p>
+ * Reads never lock: get() is a ConcurrentHashMap lookup plus a CAS into a lossy ReadBuffer. Writes update the
+ * map right away and queue the policy change in a write buffer. A single thread at a time replays both
+ * buffers against the eviction policy under the eviction lock, whoever fills a buffer or writes takes the lock
+ * with tryLock and does the work, nobody waits for it.
+ * <p>
+ * The policy splits the capacity into a small LRU admission window (1%) and a segmented LRU main space
+ * (probation and protected, 80% of it protected). New entries go through the window, when it overflows its
+ * oldest entry is only admitted to the main space if the FrequencySketch says it is used more often than the
+ * entry it would push out. A one-off scan therefore can't flush the popular entries, as it does with plain LRU.
+ * <p>
+ * Expired entries are hidden from readers right away and removed by the next maintenance, there is no
+ * background thread.
+ */
+public class ConcurrentCache<K, V> implements ICache<K, V> {
+    private static final double WINDOW_PERCENT = 0.01;
+    private static final double PROTECTED_PERCENT = 0.80;
+    // Sketch counters are 4 bits, above this a candidate is hard to tell from a hash flooding attack
+    private static final int ADMIT_HASHDOS_THRESHOLD = 5;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    // Every entry weighs 1, so replacing a value never changes the weights the policy tracks
+    private final boolean unweighted;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final LongSupplier ticker;
+
+    private final ReadBuffer<K, V> readBuffer = new ReadBuffer<>();
+    private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Consumer<Node<K, V>> onAccess = this::onAccess;
+
+    // Guarded by evictionLock
+    private final FrequencySketch sketch;
+    private final NodeDeque<K, V> window = new NodeDeque<>(false);
+    private final NodeDeque<K, V> probation = new NodeDeque<>(false);
+    private final NodeDeque<K, V> protectedQueue = new NodeDeque<>(false);
+    private final NodeDeque<K, V> writeOrder = new NodeDeque<>(true);
+    private long weightedSize;
+    private long windowWeight;
+    private long protectedWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private ConcurrentCache(Builder<K, V> builder) {
+        this.maximumWeight = builder.maximumWeight;
+        this.weigher = builder.weigher;
+        this.unweighted = builder.maximumSize > 0;
+        this.windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_PERCENT));
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_PERCENT);
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(builder.expireAfterWriteMillis);
+        this.expireAfterAccessNanos = TimeUnit.MILLISECONDS.toNanos(builder.expireAfterAccessMillis);
+        this.ticker = builder.ticker;
+        this.sketch = new FrequencySketch();
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        long now = expires() ? ticker.getAsLong() : 0;
+        if (hasExpired(node, now)) {
+            expire(node);
+            misses.increment();
+            return null;
+        }
+        V value = node.value;
+        if (expireAfterAccessNanos > 0) {
+            node.accessTime = now;
+        }
+        afterRead(node);
+        hits.increment();
+        return value;
+    }
+
+    /*
+      The loader runs outside of any map lock, unlike ConcurrentHashMap.computeIfAbsent, so a slow load only
+      holds up callers of the same key. The loader must not load the same key again.
+     */
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        try {
+            // Another load may have finished between our miss and us registering this one
+            value = getQuietly(key);
+            if (value == null) {
+                value = load(key, loader);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /*
+      Replacing a value updates the existing node in place, so the entry keeps its place and
+      frequency in the policy.
+     */
+    @Override
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Cache keys and values cannot be null");
+        }
+        int weight = weigher.applyAsInt(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative");
+        }
+        long now = expires() ? ticker.getAsLong() : 0;
+        Node<K, V> created = new Node<>(key, value, weight, now);
+        Node<K, V> current = data.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return created;
+            }
+            existing.value = value;
+            existing.weight = weight;
+            existing.writeTime = now;
+            existing.accessTime = now;
+            return existing;
+        });
+        if (current == created) {
+            afterWrite(() -> onAdd(created));
+        } else if (unweighted && expireAfterWriteNanos == 0) {
+            // Nothing for the policy to account for, the update only counts as an access
+            afterRead(current);
+        } else {
+            afterWrite(() -> onUpdate(current));
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        Node<K, V> node = data.remove(key);
+        if (node != null) {
+            node.state = Node.RETIRED;
+            afterWrite(() -> onRemove(node));
+        }
+    }
+
+    @Override
+    public long size() {
+        return data.mappingCount();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(), evictions.sum());
+    }
+
+    // Runs the pending maintenance now, waiting for the eviction lock if another thread holds it
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private V getQuietly(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null || hasExpired(node, expires() ? ticker.getAsLong() : 0)) {
+            return null;
+        }
+        return node.value;
+    }
+
+    // A null result is handed back but not cached
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        loads.increment();
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            throw e;
+        }
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    private V join(CompletableFuture<V> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            // Rethrow what the loader threw, not the wrapper
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean expires() {
+        return expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0;
+    }
+
+    private boolean hasExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private void expire(Node<K, V> node) {
+        if (data.remove(node.key, node)) {
+            node.state = Node.RETIRED;
+            evictions.increment();
+            afterWrite(() -> onRemove(node));
+        }
+    }
+
+    private void afterRead(Node<K, V> node) {
+        if (readBuffer.offer(node) == ReadBuffer.FULL) {
+            tryMaintenance();
+        }
+    }
+
+    private void afterWrite(Runnable task) {
+        writeBuffer.add(task);
+        tryMaintenance();
+    }
+
+    /*
+      Never blocks, if another thread holds the lock it will do the work. Checking the write buffer after
+      unlocking catches the tasks queued by threads whose tryLock failed while we were draining.
+     */
+    private void tryMaintenance() {
+        do {
+            if (!evictionLock.tryLock()) {
+                return;
+            }
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        } while (!writeBuffer.isEmpty());
+    }
+
+    private void maintenance() {
+        readBuffer.drainTo(onAccess);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+        }
+        expireEntries();
+        evictEntries();
+    }
+
+    private void onAdd(Node<K, V> node) {
+        // Invalidated before the policy heard of it
+        if (node.isDead()) {
+            return;
+        }
+        // Sized by entry count, never by weight: a cache of 256MB holds far fewer than 256M entries
+        sketch.ensureCapacity(unweighted ? Math.min(data.size(), maximumWeight) : data.size());
+        sketch.increment(node.key);
+        node.policyWeight = node.weight;
+        node.queueType = Node.WINDOW;
+        window.addLast(node);
+        if (expireAfterWriteNanos > 0) {
+            writeOrder.addLast(node);
+        }
+        windowWeight += node.policyWeight;
+        weightedSize += node.policyWeight;
+    }
+
+    private void onUpdate(Node<K, V> node) {
+        // Not linked yet, onAdd will pick up the latest weight
+        if (node.queueType == Node.NONE) {
+            return;
+        }
+        int delta = node.weight - node.policyWeight;
+        node.policyWeight += delta;
+        weightedSize += delta;
+        if (node.queueType == Node.WINDOW) {
+            windowWeight += delta;
+        } else if (node.queueType == Node.PROTECTED) {
+            protectedWeight += delta;
+        }
+        if (expireAfterWriteNanos > 0) {
+            writeOrder.moveToBack(node);
+        }
+        onAccess(node);
+    }
+
+    private void onRemove(Node<K, V> node) {
+        if (node.queueType != Node.NONE) {
+            unlink(node);
+        }
+        node.state = Node.DEAD;
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.queueType == Node.NONE) {
+            return;
+        }
+        sketch.increment(node.key);
+        switch (node.queueType) {
+            case Node.WINDOW -> window.moveToBack(node);
+            case Node.PROBATION -> promote(node);
+            case Node.PROTECTED -> protectedQueue.moveToBack(node);
+            default -> {
+            }
+        }
+    }
+
+    // A second hit while on probation earns a place in the protected segment, its oldest entries drop back
+    private void promote(Node<K, V> node) {
+        probation.remove(node);
+        protectedQueue.addLast(node);
+        node.queueType = Node.PROTECTED;
+        protectedWeight += node.policyWeight;
+        while (protectedWeight > protectedMaximum) {
+            Node<K, V> demoted = protectedQueue.peekFirst();
+            protectedQueue.remove(demoted);
+            probation.addLast(demoted);
+            demoted.queueType = Node.PROBATION;
+            protectedWeight -= demoted.policyWeight;
+        }
+    }
+
+    /*
+      Only looks at the heads of the queues. Hits dropped by the read buffer can leave an expired entry
+      behind a live one, readers never see it and it goes once it reaches the head or is evicted.
+     */
+    private void expireEntries() {
+        if (!expires()) {
+            return;
+        }
+        long now = ticker.getAsLong();
+        if (expireAfterAccessNanos > 0) {
+            expireHead(window, now);
+            expireHead(probation, now);
+            expireHead(protectedQueue, now);
+        }
+        if (expireAfterWriteNanos > 0) {
+            expireHead(writeOrder, now);
+        }
+    }
+
+    private void expireHead(NodeDeque<K, V> queue, long now) {
+        Node<K, V> node;
+        while ((node = queue.peekFirst()) != null && hasExpired(node, now)) {
+            evict(node);
+        }
+    }
+
+    private void evictEntries() {
+        int candidates = evictFromWindow();
+        evictFromMain(candidates);
+    }
+
+    // Moves the window overflow to the back of probation, where it competes for admission
+    private int evictFromWindow() {
+        int candidates = 0;
+        Node<K, V> node = window.peekFirst();
+        while (windowWeight > windowMaximum && node != null) {
+            Node<K, V> next = window.getNext(node);
+            window.remove(node);
+            probation.addLast(node);
+            node.queueType = Node.PROBATION;
+            windowWeight -= node.policyWeight;
+            candidates++;
+            node = next;
+        }
+        return candidates;
+    }
+
+    /*
+      Victims are taken from the head of probation, candidates (the entries just moved from the window)
+      from its tail. Each round the less frequent of the two is evicted, until the cache fits again.
+     */
+    private void evictFromMain(int candidates) {
+        Node<K, V> victim = probation.peekFirst();
+        Node<K, V> candidate = probation.peekLast();
+        while (weightedSize > maximumWeight) {
+            if (candidates <= 0) {
+                candidate = null;
+            }
+            if (victim == null && candidate == null) {
+                // Out of victims and candidates, take the oldest entry of probation, protected or the window
+                Node<K, V> fallback = !probation.isEmpty() ? probation.peekFirst()
+                        : !protectedQueue.isEmpty() ? protectedQueue.peekFirst() : window.peekFirst();
+                if (fallback == null) {
+                    return;
+                }
+                evict(fallback);
+                continue;
+            }
+            if (victim == null || victim == candidate) {
+                Node<K, V> evicted = candidate;
+                candidate = probation.getPrev(candidate);
+                if (evicted == victim) {
+                    victim = null;
+                }
+                candidates--;
+                evict(evicted);
+                continue;
+            }
+            if (candidate == null) {
+                Node<K, V> evicted = victim;
+                victim = probation.getNext(victim);
+                evict(evicted);
+                continue;
+            }
+            candidates--;
+            if (candidate.policyWeight > maximumWeight || !admit(candidate.key, victim.key)) {
+                Node<K, V> evicted = candidate;
+                candidate = probation.getPrev(candidate);
+                evict(evicted);
+            } else {
+                Node<K, V> evicted = victim;
+                victim = probation.getNext(victim);
+                candidate = probation.getPrev(candidate);
+                evict(evicted);
+            }
+        }
+    }
+
+    /*
+      A candidate that isn't more popular than the victim is rejected. Ties between warm entries are broken
+      at random once in a while, otherwise an attacker could keep a victim in place by making its hash
+      collide with hot keys in the sketch.
+     */
+    private boolean admit(K candidateKey, K victimKey) {
+        int candidateFrequency = sketch.frequency(candidateKey);
+        int victimFrequency = sketch.frequency(victimKey);
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        if (candidateFrequency <= ADMIT_HASHDOS_THRESHOLD) {
+            return false;
+        }
+        return ThreadLocalRandom.current().nextInt(128) == 0;
+    }
+
+    private void evict(Node<K, V> node) {
+        // Fails if a writer already removed it, their onRemove will find the node dead
+        if (data.remove(node.key, node)) {
+            evictions.increment();
+        }
+        if (node.queueType != Node.NONE) {
+            unlink(node);
+        }
+        node.state = Node.DEAD;
+    }
+
+    private void unlink(Node<K, V> node) {
+        switch (node.queueType) {
+            case Node.WINDOW -> {
+                window.remove(node);
+                windowWeight -= node.policyWeight;
+            }
+            case Node.PROBATION -> probation.remove(node);
+            case Node.PROTECTED -> {
+                protectedQueue.remove(node);
+                protectedWeight -= node.policyWeight;
+            }
+            default -> {
+            }
+        }
+        if (expireAfterWriteNanos > 0) {
+            writeOrder.remove(node);
+        }
+        weightedSize -= node.policyWeight;
+        node.queueType = Node.NONE;
+    }
+
+    public static class Builder<K, V> {
+        private long maximumSize;
+        private long maximumWeight;
+        private ToIntBiFunction<? super K, ? super V> weigher;
+        private long expireAfterWriteMillis;
+        private long expireAfterAccessMillis;
+        private LongSupplier ticker = System::nanoTime;
+
+        public Builder<K, V> withMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        // Bounds the total weight instead of the entry count, e.g. bytes for a cache of byte arrays
+        public Builder<K, V> withMaximumWeight(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher) {
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        public Builder<K, V> withExpireAfterWriteMillis(long expireAfterWriteMillis) {
+            this.expireAfterWriteMillis = expireAfterWriteMillis;
+            return this;
+        }
+
+        public Builder<K, V> withExpireAfterAccessMillis(long expireAfterAccessMillis) {
+            this.expireAfterAccessMillis = expireAfterAccessMillis;
+            return this;
+        }
+
+        // Source of System.nanoTime() style timestamps, replaceable to test expiry without sleeping
+        public Builder<K, V> withTicker(LongSupplier ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public ConcurrentCache<K, V> build() {
+            validate();
+            if (maximumSize > 0) {
+                maximumWeight = maximumSize;
+                weigher = (key, value) -> 1;
+            }
+            return new ConcurrentCache<>(this);
+        }
+
+        private void validate() {
+            if ((maximumSize > 0) == (maximumWeight > 0)) {
+                throw new IllegalArgumentException("Exactly one of maximum size or maximum weight must be positive");
+            }
+            if (maximumWeight > 0 && weigher == null) {
+                throw new IllegalArgumentException("Weigher is required with a maximum weight");
+            }
+            if (expireAfterWriteMillis < 0 || expireAfterAccessMillis < 0) {
+                throw new IllegalArgumentException("Expiry cannot be negative");
+            }
+            if (ticker == null) {
+                throw new IllegalArgumentException("Ticker is required");
+            }
+        }
+    }
+}
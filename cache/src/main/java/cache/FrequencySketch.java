@@ -0,0 +1,98 @@
+package cache;
+
+/**
+ * Count-min sketch with 4-bit counters, the "TinyLFU" part of W-TinyLFU.
+ * Estimates how often a key was seen recently in a few bytes per cache entry, the table grows with the number
+ * of entries rather than being sized for the cache's maximum up front. Each key maps to four counters
+ * in one 64-bit word per hash function, the estimate is the smallest of them. Once sampleSize events have been
+ * recorded every counter is halved, so the history ages and the sketch follows shifts in popularity.
+ * <p>
+ * Not thread-safe, only used by the cache's maintenance under its eviction lock.
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    FrequencySketch() {
+        ensureCapacity(16);
+    }
+
+    /*
+      Grows the table to at least one counter word per entry. Growing starts the history over, which only
+      happens while the cache fills up (once per doubling), the eviction decisions that matter come later.
+     */
+    void ensureCapacity(long entries) {
+        int capacity = (int) Math.min(Math.max(entries, 16), 1 << 30);
+        if (table != null && table.length >= capacity) {
+            return;
+        }
+        table = new long[Integer.highestOneBit(capacity - 1) << 1];
+        tableMask = table.length - 1;
+        // long math, 10 * 2^30 doesn't fit in an int
+        sampleSize = (int) Math.min(10L * table.length, Integer.MAX_VALUE);
+        size = 0;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    // Counters saturate at 15, popularity beyond that doesn't change an admission decision
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (odd >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,24 @@
+package cache;
+
+import java.util.function.Function;
+
+public interface ICache<K, V> {
+    // Returns the cached value, or null if the key is absent or expired
+    V get(K key);
+
+    /*
+      Returns the cached value, or computes it with the loader and caches it.
+      Concurrent misses on the same key run the loader once, the other callers wait for its result.
+      If the loader throws, every waiting caller gets the exception and nothing is cached.
+     */
+    V get(K key, Function<? super K, ? extends V> loader);
+
+    void put(K key, V value);
+
+    void invalidate(K key);
+
+    // Approximate, may still count entries that expired or are about to be evicted
+    long size();
+
+    CacheStats stats();
+}
@@ -0,0 +1,69 @@
+package cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Main {
+    public static void main(String[] args) throws Exception {
+        ConcurrentCache<String, String> cache = new ConcurrentCache.Builder<String, String>()
+                .withMaximumSize(100)
+                .withExpireAfterWriteMillis(200)
+                .build();
+
+        cache.put("greeting", "hello");
+        System.out.println("greeting -> " + cache.get("greeting"));
+        Thread.sleep(300);
+        System.out.println("greeting after expiry -> " + cache.get("greeting"));
+
+        // Eight threads miss on the same key at once, the loader only runs once
+        AtomicInteger loaderCalls = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                cache.get("config", key -> {
+                    loaderCalls.incrementAndGet();
+                    sleepQuietly(100);
+                    return "loaded " + key;
+                });
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        while (!executor.isTerminated()) {
+            Thread.sleep(10);
+        }
+        System.out.println("config -> " + cache.get("config") + ", loader calls: " + loaderCalls.get());
+
+        // A key read every 200 inserts survives a scan through a 100 entry cache, plain LRU would miss every time
+        ConcurrentCache<String, String> scanned = new ConcurrentCache.Builder<String, String>()
+                .withMaximumSize(100)
+                .build();
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 200 == 0) {
+                scanned.get("hot", key -> "hot value");
+            }
+            scanned.put("scan-" + i, "x");
+        }
+        scanned.cleanUp();
+        System.out.println("hot key loaded " + scanned.stats().getLoads() + " time(s) for 50 reads, size: "
+                + scanned.size());
+        System.out.println(scanned.stats());
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
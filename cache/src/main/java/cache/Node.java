@@ -0,0 +1,50 @@
+package cache;
+
+/**
+ * Cache entry. The value, weight and timestamps are read without locks by get(), everything else
+ * (queue membership, deque links, the weight the policy has accounted for) is only touched by the
+ * maintenance under the eviction lock.
+ */
+class Node<K, V> {
+    static final int ALIVE = 0;
+    // Removed from the map, the policy still has to unlink it
+    static final int RETIRED = 1;
+    // Removed from the map and the policy
+    static final int DEAD = 2;
+
+    static final int NONE = 0;
+    static final int WINDOW = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    final K key;
+    volatile V value;
+    volatile int weight;
+    volatile long writeTime;
+    volatile long accessTime;
+    volatile int state;
+
+    // Guarded by the eviction lock
+    int queueType = NONE;
+    int policyWeight;
+    Node<K, V> accessPrev;
+    Node<K, V> accessNext;
+    Node<K, V> writePrev;
+    Node<K, V> writeNext;
+
+    Node(K key, V value, int weight, long now) {
+        this.key = key;
+        this.value = value;
+        this.weight = weight;
+        this.writeTime = now;
+        this.accessTime = now;
+    }
+
+    boolean isAlive() {
+        return state == ALIVE;
+    }
+
+    boolean isDead() {
+        return state == DEAD;
+    }
+}
@@ -0,0 +1,87 @@
+package cache;
+
+/**
+ * Intrusive doubly linked list over Node, so moving an entry to the back is O(1) with no allocation.
+ * A node can be in one access order deque (its region) and the write order deque at the same time,
+ * each uses its own pair of links. Not thread-safe, only used under the eviction lock.
+ */
+class NodeDeque<K, V> {
+    private final boolean writeOrder;
+    private Node<K, V> first;
+    private Node<K, V> last;
+
+    NodeDeque(boolean writeOrder) {
+        this.writeOrder = writeOrder;
+    }
+
+    Node<K, V> peekFirst() {
+        return first;
+    }
+
+    Node<K, V> peekLast() {
+        return last;
+    }
+
+    boolean isEmpty() {
+        return first == null;
+    }
+
+    void addLast(Node<K, V> node) {
+        setPrev(node, last);
+        setNext(node, null);
+        if (last == null) {
+            first = node;
+        } else {
+            setNext(last, node);
+        }
+        last = node;
+    }
+
+    void remove(Node<K, V> node) {
+        Node<K, V> prev = getPrev(node);
+        Node<K, V> next = getNext(node);
+        if (prev == null) {
+            first = next;
+        } else {
+            setNext(prev, next);
+        }
+        if (next == null) {
+            last = prev;
+        } else {
+            setPrev(next, prev);
+        }
+        setPrev(node, null);
+        setNext(node, null);
+    }
+
+    void moveToBack(Node<K, V> node) {
+        if (node != last) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    Node<K, V> getPrev(Node<K, V> node) {
+        return writeOrder ? node.writePrev : node.accessPrev;
+    }
+
+    Node<K, V> getNext(Node<K, V> node) {
+        return writeOrder ? node.writeNext : node.accessNext;
+    }
+
+    private void setPrev(Node<K, V> node, Node<K, V> prev) {
+        if (writeOrder) {
+            node.writePrev = prev;
+        } else {
+            node.accessPrev = prev;
+        }
+    }
+
+    private void setNext(Node<K, V> node, Node<K, V> next) {
+        if (writeOrder) {
+            node.writeNext = next;
+        } else {
+            node.accessNext = next;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Records cache hits so the policy can replay them later, instead of every get() taking the eviction lock
+ * to reorder an LRU list. Striped by thread into small ring buffers, a reader claims a slot with one CAS.
+ * <p>
+ * Lossy on purpose: when a stripe is full or the CAS is lost the hit is dropped. The policy only needs a
+ * good sample of the access pattern, and dropping keeps reads from ever waiting on the maintenance.
+ */
+class ReadBuffer<K, V> {
+    static final int SUCCESS = 0;
+    static final int FULL = 1;
+    static final int FAILED = 2;
+
+    private static final int BUFFER_SIZE = 16;
+    private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+    private final int stripeMask;
+    private final AtomicLongArray writeCounters;
+    private final AtomicReferenceArray<Node<K, V>> slots;
+    // Only advanced by the drain, under the eviction lock
+    private final AtomicLongArray readCounters;
+
+    ReadBuffer() {
+        int stripes = Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1);
+        this.stripeMask = stripes - 1;
+        // Counters 8 longs apart so neighbouring stripes don't share a cache line
+        this.writeCounters = new AtomicLongArray(stripes * 8);
+        this.readCounters = new AtomicLongArray(stripes * 8);
+        this.slots = new AtomicReferenceArray<>(stripes * BUFFER_SIZE);
+    }
+
+    // Returns SUCCESS, FULL (the hit was dropped and the caller should drain) or FAILED (lost the CAS, dropped)
+    int offer(Node<K, V> node) {
+        int stripe = stripeOf(Thread.currentThread());
+        int counter = stripe << 3;
+        long head = readCounters.get(counter);
+        long tail = writeCounters.get(counter);
+        long size = tail - head;
+        if (size >= BUFFER_SIZE) {
+            return FULL;
+        }
+        if (writeCounters.compareAndSet(counter, tail, tail + 1)) {
+            slots.lazySet(stripe * BUFFER_SIZE + (int) (tail & BUFFER_MASK), node);
+            return SUCCESS;
+        }
+        return FAILED;
+    }
+
+    void drainTo(Consumer<Node<K, V>> consumer) {
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int counter = stripe << 3;
+            long head = readCounters.get(counter);
+            long tail = writeCounters.get(counter);
+            for (; head < tail; head++) {
+                int index = stripe * BUFFER_SIZE + (int) (head & BUFFER_MASK);
+                Node<K, V> node = slots.get(index);
+                if (node == null) {
+                    // Slot claimed but not published yet, pick it up on the next drain
+                    break;
+                }
+                slots.lazySet(index, null);
+                consumer.accept(node);
+            }
+            readCounters.lazySet(counter, head);
+        }
+    }
+
+    private int stripeOf(Thread thread) {
+        long id = thread.threadId();
+        return (int) (id ^ (id >>> 16)) * 0x9e3779b9 >>> 16 & stripeMask;
+    }
+}
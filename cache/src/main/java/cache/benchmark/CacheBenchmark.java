@@ -0,0 +1,222 @@
+package cache.benchmark;
+
+import cache.ConcurrentCache;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Hit rate and throughput of ConcurrentCache, run with
+ *   java cache.benchmark.CacheBenchmark
+ * <p>
+ * Hit rate replays the same key traces against ConcurrentCache and a plain LRU (an access ordered
+ * LinkedHashMap), single threaded so both see exactly the same order. ZIPF is a skewed popularity
+ * distribution as seen by most caches, ZIPF+SCAN interleaves it with one-off keys that evict popular
+ * entries from an LRU.
+ * <p>
+ * Throughput runs the threads against a cache prefilled with its working set, reading (and for the mixed
+ * workload, writing) Zipf distributed keys. The synchronized LRU is the usual "cache with a lock" baseline,
+ * an unbounded ConcurrentHashMap is the ceiling. Keys are generated before the run so the random numbers
+ * don't count towards the measurement.
+ * <p>
+ * System properties: bench.warmupMillis (default 500), bench.measureMillis (default 1000),
+ * bench.threads (default 1,2,4,8,16).
+ */
+public class CacheBenchmark {
+    private static final int KEY_SPACE = 100_000;
+    private static final int CACHE_SIZE = 2_000;
+    private static final int TRACE_LENGTH = 2_000_000;
+    private static final int KEYS_PER_THREAD = 1 << 16;
+
+    private enum Workload { READ, READ_75_WRITE_25 }
+
+    private static volatile int phase;
+    private static volatile Object blackhole;
+
+    public static void main(String[] args) throws InterruptedException {
+        long warmupMillis = Long.getLong("bench.warmupMillis", 500);
+        long measureMillis = Long.getLong("bench.measureMillis", 1000);
+        int[] threadCounts = Arrays.stream(System.getProperty("bench.threads", "1,2,4,8,16").split(","))
+                .mapToInt(count -> Integer.parseInt(count.trim()))
+                .toArray();
+
+        ZipfGenerator zipf = new ZipfGenerator(KEY_SPACE, 0.99);
+        System.out.printf("%-10s %14s %14s%n", "trace", "W-TinyLFU", "LRU");
+        runHitRate("ZIPF", zipfTrace(zipf, new Random(42)));
+        runHitRate("ZIPF+SCAN", scanTrace(zipf, new Random(42)));
+
+        System.out.println();
+        System.out.printf("%-18s %-16s %7s %14s%n", "cache", "workload", "threads", "ops/s");
+        for (Workload workload : Workload.values()) {
+            for (String name : new String[]{"ConcurrentCache", "SynchronizedLRU", "ConcurrentHashMap"}) {
+                for (int threads : threadCounts) {
+                    runThroughput(name, workload, threads, zipf, warmupMillis, measureMillis);
+                }
+            }
+        }
+    }
+
+    private static void runHitRate(String trace, int[] keys) {
+        ConcurrentCache<Integer, Integer> cache = new ConcurrentCache.Builder<Integer, Integer>()
+                .withMaximumSize(CACHE_SIZE)
+                .build();
+        Map<Integer, Integer> lru = newLru();
+        long lruHits = 0;
+        for (int key : keys) {
+            cache.get(key, k -> k);
+            if (lru.get(key) != null) {
+                lruHits++;
+            } else {
+                lru.put(key, key);
+            }
+        }
+        System.out.printf("%-10s %13.1f%% %13.1f%%%n", trace,
+                100.0 * cache.stats().hitRate(), 100.0 * lruHits / keys.length);
+    }
+
+    private static void runThroughput(String name, Workload workload, int threads, ZipfGenerator zipf,
+                                      long warmupMillis, long measureMillis) throws InterruptedException {
+        Map<Integer, Integer> map = newMap(name);
+        for (int key = 0; key < CACHE_SIZE; key++) {
+            map.put(key, key);
+        }
+        long[] ops = new long[threads];
+        CountDownLatch done = new CountDownLatch(threads);
+        phase = 0;
+
+        for (int i = 0; i < threads; i++) {
+            final int id = i;
+            Random random = new Random(id);
+            Integer[] keys = new Integer[KEYS_PER_THREAD];
+            for (int k = 0; k < keys.length; k++) {
+                keys[k] = zipf.next(random);
+            }
+            Thread worker = new Thread(() -> {
+                Object sink = null;
+                int index = 0;
+                while (phase == 0) {
+                    sink = operate(map, workload, keys[index++ & (KEYS_PER_THREAD - 1)], index);
+                }
+                long count = 0;
+                while (phase == 1) {
+                    sink = operate(map, workload, keys[index++ & (KEYS_PER_THREAD - 1)], index);
+                    count++;
+                }
+                ops[id] = count;
+                blackhole = sink;
+                done.countDown();
+            }, "bench-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        Thread.sleep(warmupMillis);
+        phase = 1;
+        long start = System.nanoTime();
+        Thread.sleep(measureMillis);
+        phase = 2;
+        long elapsedNanos = System.nanoTime() - start;
+        done.await();
+
+        System.out.printf("%-18s %-16s %7d %14.0f%n",
+                name, workload, threads, Arrays.stream(ops).sum() / (elapsedNanos / 1e9));
+    }
+
+    private static Object operate(Map<Integer, Integer> map, Workload workload, Integer key, int index) {
+        if (workload == Workload.READ_75_WRITE_25 && (index & 3) == 0) {
+            return map.put(key, key);
+        }
+        return map.get(key);
+    }
+
+    // The three contenders behind the same get/put interface
+    private static Map<Integer, Integer> newMap(String name) {
+        return switch (name) {
+            case "ConcurrentCache" -> new CacheMap(new ConcurrentCache.Builder<Integer, Integer>()
+                    .withMaximumSize(CACHE_SIZE)
+                    .build());
+            case "SynchronizedLRU" -> Collections.synchronizedMap(newLru());
+            default -> new ConcurrentHashMap<>();
+        };
+    }
+
+    private static Map<Integer, Integer> newLru() {
+        return new LinkedHashMap<>(CACHE_SIZE * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    private static int[] zipfTrace(ZipfGenerator zipf, Random random) {
+        int[] keys = new int[TRACE_LENGTH];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = zipf.next(random);
+        }
+        return keys;
+    }
+
+    // Every other 10k requests is a scan over keys that are never seen again
+    private static int[] scanTrace(ZipfGenerator zipf, Random random) {
+        int[] keys = new int[TRACE_LENGTH];
+        int scanKey = KEY_SPACE;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (i / 10_000) % 2 == 0 ? zipf.next(random) : scanKey++;
+        }
+        return keys;
+    }
+
+    private static class CacheMap extends AbstractMap<Integer, Integer> {
+        private final ConcurrentCache<Integer, Integer> cache;
+
+        private CacheMap(ConcurrentCache<Integer, Integer> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            return cache.get((Integer) key);
+        }
+
+        @Override
+        public Integer put(Integer key, Integer value) {
+            cache.put(key, value);
+            return null;
+        }
+
+        @Override
+        public Set<Entry<Integer, Integer>> entrySet() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // Inverse transform sampling over a precomputed CDF, key 0 is the most popular
+    private static class ZipfGenerator {
+        private final double[] cdf;
+
+        private ZipfGenerator(int keys, double skew) {
+            cdf = new double[keys];
+            double sum = 0;
+            for (int i = 0; i < keys; i++) {
+                sum += 1 / Math.pow(i + 1, skew);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < keys; i++) {
+                cdf[i] /= sum;
+            }
+        }
+
+        private int next(Random random) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble());
+            return index >= 0 ? index : Math.min(cdf.length - 1, -index - 1);
+        }
+    }
+}
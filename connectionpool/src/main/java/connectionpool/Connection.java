@@ -3,6 +3,8 @@ package connectionpool;
 public class Connection {
     private final String id;
     private boolean isValid;
+    // Set by the pool on every borrow, 0 when hold times aren't being measured
+    long borrowedAtNanos;
 
     Connection(String id) {
         this.id = id;
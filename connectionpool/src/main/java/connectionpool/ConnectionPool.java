@@ -1,24 +1,44 @@
 package connectionpool;
 
-import blockingqueue.BlockingQueueWithLock;
+import instrumentation.Counter;
+import instrumentation.Metrics;
+import instrumentation.PoolBorrowEvent;
+import instrumentation.PoolHoldEvent;
+import semaphore.ISemaphore;
+import semaphore.ScalableSemaphore;
 
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeoutException;
 
+/**
+ * A permit gate decides who may borrow, idle connections sit in a lock-free queue.
+ * Every idle connection is backed by exactly one permit (a connection goes back into the queue before its
+ * permit is released), so a borrower holding a permit always finds a connection and the only place anyone
+ * waits is the gate. With the default ScalableSemaphore an uncontended borrow is one CAS on the gate and
+ * one on the queue.
+ */
 public class ConnectionPool implements IConnectionPool {
-    private final BlockingQueueWithLock<Connection> queue;
+    private static final Counter BORROWS = Metrics.counter("pool.borrows");
+    private static final Counter BORROW_TIMEOUTS = Metrics.counter("pool.borrow.timeouts");
+    private static final Counter REPLACED = Metrics.counter("pool.connections.replaced");
+
+    private final ConcurrentLinkedQueue<Connection> idleConnections = new ConcurrentLinkedQueue<>();
+    private final ISemaphore permitGate;
     private final int maxConnections;
     private volatile boolean isShutdown;
 
     public ConnectionPool(Builder builder) throws InterruptedException {
         this.maxConnections = builder.maxConnections;
-        queue = new BlockingQueueWithLock<>(maxConnections);
+        this.permitGate = builder.permitGate != null
+                ? builder.permitGate
+                : new ScalableSemaphore.Builder().withPermits(maxConnections).build();
         initializeConnections();
     }
 
-    private void initializeConnections() throws InterruptedException {
+    private void initializeConnections() {
         for (int i = 0; i < maxConnections; i++) {
-            queue.put(newConnection());
+            idleConnections.add(newConnection());
         }
     }
 
@@ -28,25 +48,19 @@ public class ConnectionPool implements IConnectionPool {
 
     @Override
     public Connection getConnection() throws InterruptedException, TimeoutException {
-        return getConnection(queue.getCapacity());
-    }
-
-    private Connection getConnection(int maxRetries) throws InterruptedException, TimeoutException {
-        if (maxRetries == 0) {
-            throw new RuntimeException(String.format("Failed to get valid connection after %d attempts",
-                    queue.getCapacity()));
-        }
         checkIfShutdown();
-        Connection conn = queue.take();
-
-        if (!conn.isValid()) {
-            System.out.println("Invalid connection found, putting back new connection in queue");
-            Connection newConn = newConnection();
-            queue.put(newConn);
-            return getConnection(maxRetries - 1);
+        // Only a borrower that has to wait gets an event, the uncontended path stays a single CAS
+        if (!permitGate.tryAcquire()) {
+            PoolBorrowEvent borrowEvent = PoolBorrowEvent.start(maxConnections);
+            boolean acquired = false;
+            try {
+                permitGate.acquire();
+                acquired = true;
+            } finally {
+                borrowEvent.finish(acquired);
+            }
         }
-
-        return conn;
+        return borrow();
     }
 
     @Override
@@ -54,40 +68,75 @@ public class ConnectionPool implements IConnectionPool {
         if (timeout <= 0) {
             throw new TimeoutException("Timeout while waiting for connection.");
         }
-        long endTime = System.currentTimeMillis() + timeout;
         checkIfShutdown();
-        Connection conn = queue.take();
-
-        if (!conn.isValid()) {
-            Connection newConn = newConnection();
-            queue.put(newConn);
-            long remainingTime = endTime - System.currentTimeMillis();
-            return getConnection(remainingTime);
+        if (!permitGate.tryAcquire()) {
+            PoolBorrowEvent borrowEvent = PoolBorrowEvent.start(maxConnections);
+            boolean acquired = false;
+            try {
+                acquired = permitGate.tryAcquire(1, timeout);
+            } finally {
+                borrowEvent.finish(acquired);
+            }
+            if (!acquired) {
+                BORROW_TIMEOUTS.increment();
+                throw new TimeoutException("Timeout while waiting for connection.");
+            }
         }
+        return borrow();
+    }
 
+    // Permit already held, so there is a connection for us
+    private Connection borrow() {
+        BORROWS.increment();
+        Connection conn = idleConnections.poll();
+        if (conn == null || !conn.isValid()) {
+            // Replace a connection that went bad while idle instead of handing it out
+            REPLACED.increment();
+            conn = newConnection();
+        }
+        conn.borrowedAtNanos = PoolHoldEvent.borrowTimestamp();
         return conn;
     }
 
     @Override
     public void releaseConnection(Connection conn) throws InterruptedException {
+        if (conn != null) {
+            PoolHoldEvent.release(conn.borrowedAtNanos, conn.isValid());
+        }
+        if (isShutdown) {
+            // Borrowed before shutdown, nothing will hand it out again
+            if (conn != null) {
+                conn.close();
+            }
+            permitGate.release();
+            return;
+        }
         if (conn != null && conn.isValid()) {
-            System.out.println("Released connection is valid, putting same connection back in queue");
-            queue.put(conn);
+            idleConnections.add(conn);
         } else {
             // If the existing conn is no longer valid create a new replacement conn
-            System.out.println("Released connection is invalid, putting new connection back in queue");
-            queue.put(newConnection());
+            REPLACED.increment();
+            idleConnections.add(newConnection());
+        }
+        permitGate.release();
+        // shutdown() may have drained the idle queue between the check above and our add
+        if (isShutdown) {
+            closeIdleConnections();
         }
     }
 
     public int getAvailableConnectionsCount() {
-        return queue.getSize();
+        return permitGate.availablePermits();
     }
 
     public void shutdown() throws InterruptedException {
         isShutdown = true;
-        while (!queue.isEmpty()) {
-            Connection conn = queue.take();
+        closeIdleConnections();
+    }
+
+    private void closeIdleConnections() {
+        Connection conn;
+        while ((conn = idleConnections.poll()) != null) {
             conn.close();
         }
     }
@@ -99,7 +148,7 @@ public class ConnectionPool implements IConnectionPool {
     }
 
     public static class Builder {
-        private BlockingQueueWithLock<Connection> queue;
+        private ISemaphore permitGate;
         private int maxConnections = 10;
         private long defaultTimeout = 5000;
 
@@ -113,6 +162,12 @@ public class ConnectionPool implements IConnectionPool {
             return this;
         }
 
+        // Must be dedicated to this pool and start with exactly maxConnections permits
+        public Builder withPermitGate(ISemaphore permitGate) {
+            this.permitGate = permitGate;
+            return this;
+        }
+
         public ConnectionPool build() throws InterruptedException {
             validate();
             return new ConnectionPool(this);
@@ -125,6 +180,9 @@ public class ConnectionPool implements IConnectionPool {
             if (defaultTimeout <= 0) {
                 throw new IllegalArgumentException("Pool default timeout must be positive");
             }
+            if (permitGate != null && permitGate.availablePermits() != maxConnections) {
+                throw new IllegalArgumentException("Permit gate must start with one permit per connection");
+            }
         }
     }
 }
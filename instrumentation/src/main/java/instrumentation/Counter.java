@@ -0,0 +1,27 @@
+package instrumentation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Striped counter, threads incrementing at the same time mostly land on different cells
+public class Counter {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        if (Metrics.ENABLED) {
+            count.increment();
+        }
+    }
+
+    public void add(long amount) {
+        if (Metrics.ENABLED) {
+            count.add(amount);
+        }
+    }
+
+    public long sum() {
+        return count.sum();
+    }
+}
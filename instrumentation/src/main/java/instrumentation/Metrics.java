@@ -0,0 +1,30 @@
+package instrumentation;
+
+/**
+ * Entry point to the process wide MetricsRegistry.
+ * <p>
+ * Metrics are off unless the JVM is started with -Dmetrics.enabled=true. The flag is a static final, so
+ * when it is off the JIT folds every Counter.increment() and Histogram.record() down to nothing and the
+ * instrumented hot paths cost the same as uninstrumented ones. The JFR events don't depend on it, they are
+ * switched on at runtime by starting a recording (e.g. jcmd <pid> JFR.start).
+ */
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("metrics.enabled");
+
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    private Metrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+
+    public static Counter counter(String name) {
+        return REGISTRY.counter(name);
+    }
+
+    public static Histogram histogram(String name) {
+        return REGISTRY.histogram(name);
+    }
+}
@@ -0,0 +1,43 @@
+package instrumentation;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named counters and histograms. Components look their metrics up once (typically into a static final
+ * field) and record into them directly, the map is never touched on a hot path.
+ */
+public class MetricsRegistry {
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    // Current value of every counter, and count/mean/p50/p99/max of every histogram, sorted by name
+    public Map<String, Number> snapshot() {
+        Map<String, Number> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        histograms.forEach((name, histogram) -> {
+            snapshot.put(name + ".count", histogram.getCount());
+            snapshot.put(name + ".mean", Math.round(histogram.getMean()));
+            snapshot.put(name + ".p50", histogram.percentile(50));
+            snapshot.put(name + ".p99", histogram.percentile(99));
+            snapshot.put(name + ".max", histogram.getMax());
+        });
+        return snapshot;
+    }
+
+    // One "name value" line per entry of the snapshot, easy to scrape or log
+    public String export() {
+        StringBuilder builder = new StringBuilder();
+        snapshot().forEach((name, value) -> builder.append(name).append(' ').append(value).append('\n'));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// A borrower that found no free connection and had to wait for one, its duration is the wait
+@Name("concurrency.PoolBorrow")
+@Label("Pool Borrow Wait")
+@Category({"Concurrency", "Connection Pool"})
+@Description("Time a borrower waited for a connection to become free")
+@StackTrace(false)
+public class PoolBorrowEvent extends Event {
+    private static final Histogram BORROW_WAIT = Metrics.histogram("pool.borrow.wait.nanos");
+
+    @Label("Pool Size")
+    private final int poolSize;
+
+    @Label("Timed Out")
+    private boolean timedOut;
+
+    private final transient long startNanos = System.nanoTime();
+
+    private PoolBorrowEvent(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public static PoolBorrowEvent start(int poolSize) {
+        PoolBorrowEvent event = new PoolBorrowEvent(poolSize);
+        event.begin();
+        return event;
+    }
+
+    public void finish(boolean acquired) {
+        timedOut = !acquired;
+        BORROW_WAIT.record(System.nanoTime() - startNanos);
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emitted when a connection comes back to the pool. Borrow and release usually happen far apart (often on
+ * different threads), so instead of a begin/end duration the event carries the hold time as a field.
+ */
+@Name("concurrency.PoolHold")
+@Label("Pool Connection Hold")
+@Category({"Concurrency", "Connection Pool"})
+@Description("How long a connection was held between borrow and release")
+@StackTrace(false)
+public class PoolHoldEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(PoolHoldEvent.class);
+    private static final Histogram HOLD_TIME = Metrics.histogram("pool.hold.nanos");
+
+    @Label("Hold Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private final long holdTime;
+
+    @Label("Valid")
+    private final boolean valid;
+
+    private PoolHoldEvent(long holdTime, boolean valid) {
+        this.holdTime = holdTime;
+        this.valid = valid;
+    }
+
+    // Borrow timestamp, 0 when neither metrics nor a recording would use it so the clock isn't read for nothing
+    public static long borrowTimestamp() {
+        return Metrics.ENABLED || TYPE.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    public static void release(long borrowTimestamp, boolean valid) {
+        if (borrowTimestamp == 0) {
+            return;
+        }
+        long holdTime = System.nanoTime() - borrowTimestamp;
+        HOLD_TIME.record(holdTime);
+        PoolHoldEvent event = new PoolHoldEvent(holdTime, valid);
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+}
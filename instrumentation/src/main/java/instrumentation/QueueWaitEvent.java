@@ -0,0 +1,55 @@
+package instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A put that blocked on a full bounded queue or a take that blocked on an empty one. Only created on the
+ * waiting path, a put or take that goes straight through records nothing but its counter.
+ */
+@Name("concurrency.QueueWait")
+@Label("Queue Wait")
+@Category({"Concurrency", "Queue"})
+@Description("Time a producer or consumer spent blocked on a bounded queue")
+@StackTrace(false)
+public class QueueWaitEvent extends Event {
+    private static final Histogram PUT_WAIT = Metrics.histogram("queue.put.wait.nanos");
+    private static final Histogram TAKE_WAIT = Metrics.histogram("queue.take.wait.nanos");
+
+    @Label("Operation")
+    private final String operation;
+
+    @Label("Capacity")
+    private final int capacity;
+
+    private final transient long startNanos = System.nanoTime();
+
+    private QueueWaitEvent(String operation, int capacity) {
+        this.operation = operation;
+        this.capacity = capacity;
+    }
+
+    public static QueueWaitEvent put(int capacity) {
+        QueueWaitEvent event = new QueueWaitEvent("put", capacity);
+        event.begin();
+        return event;
+    }
+
+    public static QueueWaitEvent take(int capacity) {
+        QueueWaitEvent event = new QueueWaitEvent("take", capacity);
+        event.begin();
+        return event;
+    }
+
+    // Called once the wait is over, whether it ended with an item, a timeout or an interrupt
+    public void finish() {
+        (operation.equals("put") ? PUT_WAIT : TAKE_WAIT).record(System.nanoTime() - startNanos);
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
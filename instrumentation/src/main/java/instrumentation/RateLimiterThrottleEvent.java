@@ -0,0 +1,50 @@
+package instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// A blocking acquire that was over the limit, begun on its first wait and finished once it got a permit
+@Name("concurrency.RateLimiterThrottle")
+@Label("Rate Limiter Throttle")
+@Category({"Concurrency", "Rate Limiter"})
+@Description("Time a caller was held back by a rate limiter")
+@StackTrace(false)
+public class RateLimiterThrottleEvent extends Event {
+    private static final Counter THROTTLED = Metrics.counter("ratelimiter.throttled");
+    private static final Histogram THROTTLE_TIME = Metrics.histogram("ratelimiter.throttle.nanos");
+
+    @Label("Limiter")
+    private final String limiter;
+
+    @Label("Waits")
+    private int waits;
+
+    private final transient long startNanos = System.nanoTime();
+
+    private RateLimiterThrottleEvent(String limiter) {
+        this.limiter = limiter;
+    }
+
+    public static RateLimiterThrottleEvent start(Object limiter) {
+        THROTTLED.increment();
+        RateLimiterThrottleEvent event = new RateLimiterThrottleEvent(limiter.getClass().getSimpleName());
+        event.begin();
+        return event;
+    }
+
+    // One more round of waiting for the window or the bucket to refill
+    public void onWait() {
+        waits++;
+    }
+
+    public void finish() {
+        THROTTLE_TIME.record(System.nanoTime() - startNanos);
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
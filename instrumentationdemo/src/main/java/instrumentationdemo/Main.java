@@ -0,0 +1,107 @@
+package instrumentationdemo;
+
+import blockingqueue.BlockingQueueWithLock;
+import connectionpool.Connection;
+import connectionpool.ConnectionPool;
+import instrumentation.Metrics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import ratelimiter.RateLimiterConfig;
+import ratelimiter.RateLimiterType;
+import ratelimiter.TokenBucketRateLimiter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Exercises the instrumented queue, pool and rate limiter. Kept out of the instrumentation module, which
+// depends on nothing else in the repo. Run with -Dmetrics.enabled=true to see the registry fill up, the JFR
+// events are recorded either way
+public class Main {
+    public static void main(String[] args) throws Exception {
+        Path file = Files.createTempFile("concurrency", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("concurrency.QueueWait").withThreshold(Duration.ZERO);
+            recording.enable("concurrency.PoolBorrow").withThreshold(Duration.ZERO);
+            recording.enable("concurrency.PoolHold");
+            recording.enable("concurrency.RateLimiterThrottle").withThreshold(Duration.ZERO);
+            recording.start();
+
+            runQueue();
+            runPool();
+            runRateLimiter();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, Integer> eventCounts = new TreeMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            eventCounts.merge(event.getEventType().getName(), 1, Integer::sum);
+        }
+        Files.delete(file);
+        System.out.println("JFR events: " + eventCounts);
+
+        System.out.println("Metrics enabled: " + Metrics.ENABLED);
+        System.out.print(Metrics.registry().export());
+    }
+
+    // A slow consumer keeps a small queue full, so the producer waits on most puts
+    private static void runQueue() throws InterruptedException {
+        BlockingQueueWithLock<Integer> queue = new BlockingQueueWithLock<>(2);
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20; i++) {
+                    queue.take();
+                    Thread.sleep(2);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < 20; i++) {
+            queue.put(i);
+        }
+        consumer.join();
+    }
+
+    // Four borrowers on two connections, half of them wait for a release
+    private static void runPool() throws Exception {
+        ConnectionPool pool = new ConnectionPool.Builder().withMaxConnections(2).build();
+        Thread[] borrowers = new Thread[4];
+        for (int i = 0; i < borrowers.length; i++) {
+            borrowers[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 5; j++) {
+                        Connection conn = pool.getConnection(1000);
+                        Thread.sleep(5);
+                        pool.releaseConnection(conn);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            borrowers[i].start();
+        }
+        for (Thread borrower : borrowers) {
+            borrower.join();
+        }
+        pool.shutdown();
+    }
+
+    // 5 permits per 100ms, the second half of the acquires get throttled
+    private static void runRateLimiter() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(new RateLimiterConfig.Builder()
+                .withRateLimiterType(RateLimiterType.TOKEN_BUCKET)
+                .withMaxRequests(5)
+                .withWindowSizeInMillis(100)
+                .build());
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+        }
+    }
+}
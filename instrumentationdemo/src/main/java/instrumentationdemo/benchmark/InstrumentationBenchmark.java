@@ -0,0 +1,82 @@
+package instrumentationdemo.benchmark;
+
+import blockingqueue.BlockingQueueWithLock;
+import connectionpool.Connection;
+import connectionpool.ConnectionPool;
+import instrumentation.Counter;
+import instrumentation.Histogram;
+import instrumentation.Metrics;
+
+/**
+ * Cost of the instrumentation on the uncontended hot paths, run it once per setting and compare:
+ *   java instrumentationdemo.benchmark.InstrumentationBenchmark
+ *   java -Dmetrics.enabled=true instrumentationdemo.benchmark.InstrumentationBenchmark
+ * <p>
+ * With metrics off the counters and histograms compile away and the queue and pool numbers should match an
+ * uninstrumented build. JFR events only exist on the waiting paths, which none of these loops take.
+ * <p>
+ * System properties: bench.ops (default 10,000,000 per round), bench.rounds (default 5, the first one is warmup).
+ */
+public class InstrumentationBenchmark {
+    private static volatile long blackhole;
+
+    public static void main(String[] args) throws Exception {
+        int ops = Integer.getInteger("bench.ops", 10_000_000);
+        int rounds = Integer.getInteger("bench.rounds", 5);
+
+        System.out.printf("metrics.enabled=%b, %d ops per round%n", Metrics.ENABLED, ops);
+        System.out.printf("%-24s %10s%n", "operation", "ns/op");
+
+        Counter counter = Metrics.counter("bench.counter");
+        run("Counter.increment", ops, rounds, () -> {
+            for (int i = 0; i < ops; i++) {
+                counter.increment();
+            }
+        });
+
+        Histogram histogram = Metrics.histogram("bench.histogram");
+        run("Histogram.record", ops, rounds, () -> {
+            for (int i = 0; i < ops; i++) {
+                histogram.record(i & 0xFFFF);
+            }
+        });
+
+        BlockingQueueWithLock<Integer> queue = new BlockingQueueWithLock<>(1024);
+        Integer item = 42;
+        run("queue offer+poll", ops, rounds, () -> {
+            long sum = 0;
+            for (int i = 0; i < ops; i++) {
+                queue.offer(item);
+                sum += queue.poll();
+            }
+            blackhole = sum;
+        });
+
+        ConnectionPool pool = new ConnectionPool.Builder().withMaxConnections(4).build();
+        run("pool borrow+release", ops, rounds, () -> {
+            for (int i = 0; i < ops; i++) {
+                Connection conn = pool.getConnection();
+                pool.releaseConnection(conn);
+            }
+        });
+        pool.shutdown();
+    }
+
+    private static void run(String name, int ops, int rounds, Body body) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            body.run();
+            long elapsed = System.nanoTime() - start;
+            // First round only warms up the JIT
+            if (round > 0) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("%-24s %10.1f%n", name, (double) best / ops);
+    }
+
+    private interface Body {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,45 @@
+package pubsub;
+
+// Runs one subscriber: waits on its barrier, hands every available event to the handler, then moves its cursor
+class BatchEventProcessor<E> implements Runnable {
+    private final RingBuffer<E> ringBuffer;
+    private final SequenceBarrier barrier;
+    private final IEventHandler<? super E> handler;
+    private final Sequence sequence = new Sequence();
+
+    BatchEventProcessor(RingBuffer<E> ringBuffer, SequenceBarrier barrier, IEventHandler<? super E> handler) {
+        this.ringBuffer = ringBuffer;
+        this.barrier = barrier;
+        this.handler = handler;
+    }
+
+    @Override
+    public void run() {
+        long next = sequence.get() + 1;
+        while (true) {
+            long available = barrier.waitFor(next);
+            if (available < next) {
+                return;
+            }
+            for (; next <= available; next++) {
+                try {
+                    handler.onEvent(ringBuffer.get(next), next, next == available);
+                } catch (Exception e) {
+                    // A failing event must not stall the ring, report it and move on
+                    Thread current = Thread.currentThread();
+                    current.getUncaughtExceptionHandler().uncaughtException(current, e);
+                }
+            }
+            // Once per batch, not per event: downstream stages and publishers see the whole batch at once
+            sequence.set(available);
+        }
+    }
+
+    Sequence getSequence() {
+        return sequence;
+    }
+
+    SequenceBarrier getBarrier() {
+        return barrier;
+    }
+}
@@ -0,0 +1,19 @@
+package pubsub;
+
+// Handle for a subscriber, passed to subscribe() to make later subscribers wait for it
+public final class ConsumerStage {
+    private final Sequence sequence;
+
+    ConsumerStage(Sequence sequence) {
+        this.sequence = sequence;
+    }
+
+    // Last sequence this subscriber has fully processed
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    Sequence sequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,10 @@
+package pubsub;
+
+public interface IEventHandler<E> {
+    /*
+      Called for every event in order. endOfBatch is true for the last event currently available, a good
+      point to flush work that was batched up (e.g. write to disk or the network once per batch).
+      The event object is reused by the ring buffer, copy anything that must outlive the call.
+     */
+    void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+}
@@ -0,0 +1,21 @@
+package pubsub;
+
+import java.util.function.Consumer;
+
+public interface IPubSub<E> {
+    // Adds a subscriber that sees every event, after all the upstream stages have processed it
+    ConsumerStage subscribe(IEventHandler<? super E> handler, ConsumerStage... upstream);
+
+    void start();
+
+    // Fills in the next event in place, waiting while the slowest subscriber is a full buffer behind
+    void publish(Consumer<? super E> translator);
+
+    // Same as publish, but returns false instead of waiting when the buffer is full
+    boolean tryPublish(Consumer<? super E> translator);
+
+    // Stops accepting events, subscribers finish everything already published and exit
+    void shutdown();
+
+    boolean awaitTermination(long timeoutInMillis) throws InterruptedException;
+}
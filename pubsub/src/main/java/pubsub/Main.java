@@ -0,0 +1,53 @@
+package pubsub;
+
+public class Main {
+    private static class Trade {
+        private long id;
+        private long quantity;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        RingBufferPubSub<Trade> pubSub = new RingBufferPubSub.Builder<>(Trade::new)
+                .withBufferSize(1024)
+                .build();
+
+        // Journal and replicate in parallel, settle each trade only after both are done with it
+        long[] journaled = new long[1];
+        long[] batches = new long[1];
+        ConsumerStage journal = pubSub.subscribe((trade, sequence, endOfBatch) -> {
+            journaled[0]++;
+            if (endOfBatch) {
+                // A real journal would flush to disk here, once per batch instead of once per trade
+                batches[0]++;
+            }
+        });
+        long[] replicated = new long[1];
+        ConsumerStage replicate = pubSub.subscribe((trade, sequence, endOfBatch) -> replicated[0]++);
+        long[] settledQuantity = new long[1];
+        pubSub.subscribe((trade, sequence, endOfBatch) -> settledQuantity[0] += trade.quantity, journal, replicate);
+        pubSub.start();
+
+        for (long i = 1; i <= 100_000; i++) {
+            long id = i;
+            pubSub.publish(trade -> {
+                trade.id = id;
+                trade.quantity = id % 10;
+            });
+        }
+
+        // Batch publish: one claim for ten events
+        RingBuffer<Trade> ringBuffer = pubSub.getRingBuffer();
+        long high = ringBuffer.next(10);
+        for (long sequence = high - 9; sequence <= high; sequence++) {
+            Trade trade = ringBuffer.get(sequence);
+            trade.id = -sequence;
+            trade.quantity = 1;
+        }
+        ringBuffer.publish(high - 9, high);
+
+        pubSub.shutdown();
+        System.out.println("Terminated: " + pubSub.awaitTermination(5000));
+        System.out.println("Journaled " + journaled[0] + " trades in " + batches[0] + " batches, replicated "
+                + replicated[0] + ", settled quantity " + settledQuantity[0]);
+    }
+}
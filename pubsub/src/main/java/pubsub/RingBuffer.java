@@ -0,0 +1,158 @@
+package pubsub;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Preallocated ring of events shared by any number of publishers and consumers.
+ * <p>
+ * Publishing is two steps: claim a sequence with next() (a CAS on the cursor), fill in the event at that
+ * sequence, then publish() it. Publishers claim in order but may publish out of order, so each slot records
+ * the lap it was last published in and consumers only read up to the first gap.
+ * <p>
+ * A claim never wraps around onto a slot the slowest consumer hasn't processed yet, the publisher waits
+ * instead. That gate is the backpressure.
+ */
+public class RingBuffer<E> {
+    private final Object[] entries;
+    private final int bufferSize;
+    private final int indexMask;
+    private final int indexShift;
+    // Lap number each slot was last published in, -1 for never
+    private final AtomicIntegerArray published;
+    // Highest claimed sequence
+    private final Sequence cursor = new Sequence();
+    // Last seen minimum of the gating sequences, saves scanning them on every claim
+    private final Sequence gatingCache = new Sequence();
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+    // Subscribers stop consuming after a shutdown, so a full buffer would never free up again
+    private volatile boolean isShutdown;
+
+    RingBuffer(Supplier<E> eventFactory, int bufferSize) {
+        this.entries = new Object[bufferSize];
+        this.bufferSize = bufferSize;
+        this.indexMask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.published = new AtomicIntegerArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            entries[i] = eventFactory.get();
+            published.set(i, -1);
+        }
+    }
+
+    public long next() {
+        return next(1);
+    }
+
+    /*
+      Claims n consecutive sequences and returns the highest, waiting while the buffer is full.
+      Throws IllegalStateException instead of waiting once the pub-sub is shut down, nothing is claimed then.
+     */
+    public long next(int n) {
+        checkBatchSize(n);
+        long current;
+        long next;
+        while (true) {
+            current = cursor.get();
+            next = current + n;
+            if (hasCapacity(next, current)) {
+                if (cursor.compareAndSet(current, next)) {
+                    return next;
+                }
+            } else {
+                if (isShutdown) {
+                    throw new IllegalStateException("Pub-sub is shutdown");
+                }
+                LockSupport.parkNanos(1);
+            }
+        }
+    }
+
+    // Same as next(n), but returns -1 instead of waiting when the buffer is full
+    public long tryNext(int n) {
+        checkBatchSize(n);
+        long current;
+        long next;
+        do {
+            current = cursor.get();
+            next = current + n;
+            if (!hasCapacity(next, current)) {
+                return -1;
+            }
+        } while (!cursor.compareAndSet(current, next));
+        return next;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & indexMask];
+    }
+
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & indexMask, (int) (sequence >>> indexShift));
+    }
+
+    public void publish(long low, long high) {
+        for (long sequence = low; sequence <= high; sequence++) {
+            publish(sequence);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public long remainingCapacity() {
+        long consumed = Sequence.minimum(gatingSequences, cursor.get());
+        return bufferSize - (cursor.get() - consumed);
+    }
+
+    boolean isPublished(long sequence) {
+        return published.get((int) sequence & indexMask) == (int) (sequence >>> indexShift);
+    }
+
+    // Highest sequence from low up to available with no unpublished gap before it
+    long highestPublished(long low, long available) {
+        for (long sequence = low; sequence <= available; sequence++) {
+            if (!isPublished(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return available;
+    }
+
+    void shutdown() {
+        isShutdown = true;
+    }
+
+    // Only called before any event is published
+    void addGatingSequence(Sequence sequence) {
+        Sequence[] current = gatingSequences;
+        Sequence[] updated = new Sequence[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = sequence;
+        gatingSequences = updated;
+    }
+
+    private boolean hasCapacity(long next, long current) {
+        long wrapPoint = next - bufferSize;
+        long cachedGating = gatingCache.get();
+        if (wrapPoint > cachedGating || cachedGating > current) {
+            long gating = Sequence.minimum(gatingSequences, current);
+            gatingCache.set(gating);
+            return wrapPoint <= gating;
+        }
+        return true;
+    }
+
+    private void checkBatchSize(int n) {
+        if (n <= 0 || n > bufferSize) {
+            throw new IllegalArgumentException("Batch size must be between 1 and the buffer size");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package pubsub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Multicast pub-sub over a single RingBuffer, Disruptor style.
+ * <p>
+ * Every subscriber runs on its own thread and tracks its own cursor into the same preallocated ring, so
+ * fanning out to K subscribers costs one write per event instead of K enqueues onto K locked queues.
+ * Subscribers read every event available in one batch, and can be chained into stages: a subscriber given
+ * upstream stages only sees an event after all of them are done with it (e.g. journal and replicate first,
+ * then apply). Publishers wait when the slowest subscriber falls a whole buffer behind.
+ * <p>
+ * Events are created once up front by the event factory and reused, publishers fill them in place.
+ */
+public class RingBufferPubSub<E> implements IPubSub<E> {
+    private final RingBuffer<E> ringBuffer;
+    private final WaitStrategy waitStrategy;
+    private final List<BatchEventProcessor<E>> processors = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean started;
+    private volatile boolean isShutdown;
+
+    private RingBufferPubSub(Builder<E> builder) {
+        this.ringBuffer = new RingBuffer<>(builder.eventFactory, builder.bufferSize);
+        this.waitStrategy = builder.waitStrategy;
+    }
+
+    @Override
+    public synchronized ConsumerStage subscribe(IEventHandler<? super E> handler, ConsumerStage... upstream) {
+        if (started) {
+            throw new IllegalStateException("Cannot subscribe after the pub-sub is started");
+        }
+        Sequence[] dependencies = new Sequence[upstream.length];
+        for (int i = 0; i < upstream.length; i++) {
+            dependencies[i] = upstream[i].sequence();
+        }
+        BatchEventProcessor<E> processor = new BatchEventProcessor<>(ringBuffer,
+                new SequenceBarrier(ringBuffer, dependencies, waitStrategy), handler);
+        // Gating on every subscriber is the same as gating on the last stages, upstream is never behind them
+        ringBuffer.addGatingSequence(processor.getSequence());
+        processors.add(processor);
+        return new ConsumerStage(processor.getSequence());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (started) {
+            throw new IllegalStateException("Pub-sub is already started");
+        }
+        if (processors.isEmpty()) {
+            throw new IllegalStateException("Pub-sub needs at least one subscriber");
+        }
+        for (int i = 0; i < processors.size(); i++) {
+            Thread thread = new Thread(processors.get(i), "pubsub-subscriber-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        started = true;
+    }
+
+    /*
+      The event is published even if the translator throws, a claimed slot that is never published
+      would stall every subscriber.
+     */
+    @Override
+    public void publish(Consumer<? super E> translator) {
+        checkRunning();
+        long sequence = ringBuffer.next();
+        try {
+            translator.accept(ringBuffer.get(sequence));
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    @Override
+    public boolean tryPublish(Consumer<? super E> translator) {
+        checkRunning();
+        long sequence = ringBuffer.tryNext(1);
+        if (sequence < 0) {
+            return false;
+        }
+        try {
+            translator.accept(ringBuffer.get(sequence));
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+        return true;
+    }
+
+    // Events published concurrently with the shutdown may or may not be delivered
+    @Override
+    public synchronized void shutdown() {
+        isShutdown = true;
+        // Publishers waiting for capacity give up, the subscribers are about to stop freeing it
+        ringBuffer.shutdown();
+        for (BatchEventProcessor<E> processor : processors) {
+            processor.getBarrier().alert();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeoutInMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+        for (Thread thread : threads) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return !thread.isAlive();
+            }
+            thread.join(remainingMillis);
+            if (thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // For batch publishing: claim with next(n), fill in each event, then publish(low, high)
+    public RingBuffer<E> getRingBuffer() {
+        return ringBuffer;
+    }
+
+    private void checkRunning() {
+        if (!started) {
+            throw new IllegalStateException("Pub-sub is not started");
+        }
+        if (isShutdown) {
+            throw new IllegalStateException("Pub-sub is shutdown");
+        }
+    }
+
+    public static class Builder<E> {
+        private final Supplier<E> eventFactory;
+        private int bufferSize = 1024;
+        private WaitStrategy waitStrategy = WaitStrategy.SLEEPING;
+
+        public Builder(Supplier<E> eventFactory) {
+            this.eventFactory = eventFactory;
+        }
+
+        public Builder<E> withBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public Builder<E> withWaitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        public RingBufferPubSub<E> build() {
+            validate();
+            return new RingBufferPubSub<>(this);
+        }
+
+        private void validate() {
+            if (eventFactory == null) {
+                throw new IllegalArgumentException("Event factory is required");
+            }
+            if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+                throw new IllegalArgumentException("Buffer size must be a positive power of two");
+            }
+            if (waitStrategy == null) {
+                throw new IllegalArgumentException("Wait strategy is required");
+            }
+        }
+    }
+}
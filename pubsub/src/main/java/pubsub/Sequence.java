@@ -0,0 +1,42 @@
+package pubsub;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Position in the ring buffer, a padded counter. Publishers and every consumer each own one and read the
+ * others' all the time, padding the value to a cache line of its own keeps a write to one from invalidating
+ * the line of its neighbours (false sharing).
+ */
+class Sequence {
+    static final long INITIAL = -1;
+
+    // 7 longs of padding on each side of the value
+    private static final int VALUE = 7;
+
+    private final AtomicLongArray padded = new AtomicLongArray(15);
+
+    Sequence() {
+        padded.set(VALUE, INITIAL);
+    }
+
+    long get() {
+        return padded.get(VALUE);
+    }
+
+    // Ordered store, cheaper than a volatile write and enough to publish everything written before it
+    void set(long value) {
+        padded.lazySet(VALUE, value);
+    }
+
+    boolean compareAndSet(long expected, long value) {
+        return padded.compareAndSet(VALUE, expected, value);
+    }
+
+    static long minimum(Sequence[] sequences, long defaultValue) {
+        long minimum = defaultValue;
+        for (Sequence sequence : sequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+}
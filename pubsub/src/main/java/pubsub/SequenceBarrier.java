@@ -0,0 +1,45 @@
+package pubsub;
+
+/**
+ * What a consumer waits on: published events, and for a downstream stage also the consumers it depends on.
+ * A stage behind a journaller, for example, only sees an event once the journaller is done with it.
+ */
+class SequenceBarrier {
+    private final RingBuffer<?> ringBuffer;
+    private final Sequence[] dependencies;
+    private final WaitStrategy waitStrategy;
+    private volatile boolean alerted;
+
+    SequenceBarrier(RingBuffer<?> ringBuffer, Sequence[] dependencies, WaitStrategy waitStrategy) {
+        this.ringBuffer = ringBuffer;
+        this.dependencies = dependencies;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /*
+      Returns the highest sequence the consumer may read, at least the one asked for, so everything up to it
+      can be processed as one batch. Returns less than the sequence asked for once alerted and nothing more
+      was claimed, i.e. the consumer has drained everything and should stop.
+     */
+    long waitFor(long sequence) {
+        int attempt = 0;
+        while (true) {
+            long available = dependencies.length == 0
+                    ? ringBuffer.getCursor()
+                    : Sequence.minimum(dependencies, Long.MAX_VALUE);
+            if (available >= sequence) {
+                long highest = ringBuffer.highestPublished(sequence, available);
+                if (highest >= sequence) {
+                    return highest;
+                }
+            } else if (alerted && sequence > ringBuffer.getCursor()) {
+                return sequence - 1;
+            }
+            waitStrategy.idle(attempt++);
+        }
+    }
+
+    void alert() {
+        alerted = true;
+    }
+}
@@ -0,0 +1,27 @@
+package pubsub;
+
+import java.util.concurrent.locks.LockSupport;
+
+// How a consumer waits for the next event, trading latency for CPU
+public enum WaitStrategy {
+    // Lowest latency, burns a core per consumer even when idle
+    BUSY_SPIN,
+    // Spins briefly, then yields the core to other threads between checks
+    YIELDING,
+    // Spins, yields, then parks for 100us at a time, nearly free when idle
+    SLEEPING;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = 100_000;
+
+    void idle(int attempt) {
+        if (this == BUSY_SPIN || attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (this == YIELDING || attempt < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+}
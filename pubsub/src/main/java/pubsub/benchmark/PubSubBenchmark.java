@@ -0,0 +1,126 @@
+package pubsub.benchmark;
+
+import pubsub.RingBufferPubSub;
+import pubsub.WaitStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fan-out throughput, one publisher to K subscribers that all see every event, run with
+ *   java pubsub.benchmark.PubSubBenchmark
+ * <p>
+ * RingBufferPubSub writes each event once into the shared ring. The baseline is what fan-out looks like with
+ * blocking queues: one ArrayBlockingQueue per subscriber, and the publisher puts every event into each of them.
+ * (ArrayBlockingQueue rather than BlockingQueueWithLock, whose fair lock and linked list would flatter the ring buffer.)
+ * <p>
+ * System properties: bench.events (default 5,000,000), bench.subscribers (default 1,2,4),
+ * bench.bufferSize (default 1024, also the queue capacity), bench.rounds (default 3, the first one is warmup).
+ */
+public class PubSubBenchmark {
+    private static final long POISON = -1;
+
+    private static class ValueEvent {
+        private long value;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long events = Long.getLong("bench.events", 5_000_000);
+        int bufferSize = Integer.getInteger("bench.bufferSize", 1024);
+        int rounds = Integer.getInteger("bench.rounds", 3);
+        int[] subscriberCounts = Arrays.stream(System.getProperty("bench.subscribers", "1,2,4").split(","))
+                .mapToInt(count -> Integer.parseInt(count.trim()))
+                .toArray();
+
+        System.out.printf("%-22s %11s %14s%n", "fan-out", "subscribers", "events/s");
+        for (int subscribers : subscriberCounts) {
+            double ringBest = 0;
+            double queueBest = 0;
+            for (int round = 0; round < rounds; round++) {
+                double ring = runRingBuffer(subscribers, events, bufferSize);
+                double queues = runQueues(subscribers, events, bufferSize);
+                if (round > 0) {
+                    ringBest = Math.max(ringBest, ring);
+                    queueBest = Math.max(queueBest, queues);
+                }
+            }
+            System.out.printf("%-22s %11d %14.0f%n", "RingBufferPubSub", subscribers, ringBest);
+            System.out.printf("%-22s %11d %14.0f%n", "ArrayBlockingQueue x K", subscribers, queueBest);
+        }
+    }
+
+    private static double runRingBuffer(int subscribers, long events, int bufferSize) throws InterruptedException {
+        RingBufferPubSub<ValueEvent> pubSub = new RingBufferPubSub.Builder<>(ValueEvent::new)
+                .withBufferSize(bufferSize)
+                .withWaitStrategy(WaitStrategy.YIELDING)
+                .build();
+        long[] sums = new long[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            final int id = i;
+            pubSub.subscribe((event, sequence, endOfBatch) -> sums[id] += event.value);
+        }
+        pubSub.start();
+        long start = System.nanoTime();
+        for (long i = 0; i < events; i++) {
+            long value = i;
+            pubSub.publish(event -> event.value = value);
+        }
+        pubSub.shutdown();
+        pubSub.awaitTermination(60_000);
+        long elapsedNanos = System.nanoTime() - start;
+        checkSums(sums, events);
+        return events / (elapsedNanos / 1e9);
+    }
+
+    private static double runQueues(int subscribers, long events, int bufferSize) throws InterruptedException {
+        List<BlockingQueue<Long>> queues = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long[] sums = new long[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            final int id = i;
+            BlockingQueue<Long> queue = new ArrayBlockingQueue<>(bufferSize);
+            queues.add(queue);
+            Thread thread = new Thread(() -> {
+                try {
+                    long value;
+                    while ((value = queue.take()) != POISON) {
+                        sums[id] += value;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "queue-subscriber-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        long start = System.nanoTime();
+        for (long i = 0; i < events; i++) {
+            Long value = i;
+            for (BlockingQueue<Long> queue : queues) {
+                queue.put(value);
+            }
+        }
+        for (BlockingQueue<Long> queue : queues) {
+            queue.put(POISON);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        checkSums(sums, events);
+        return events / (elapsedNanos / 1e9);
+    }
+
+    // Also keeps the JIT from dropping the subscribers' work
+    private static void checkSums(long[] sums, long events) {
+        long expected = events * (events - 1) / 2;
+        for (long sum : sums) {
+            if (sum != expected) {
+                throw new IllegalStateException("Subscriber missed events, sum " + sum + " != " + expected);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ratelimiter.benchmark;
+
+import ratelimiter.IRateLimiter;
+import ratelimiter.RateLimiterConfig;
+import ratelimiter.RateLimiterType;
+import ratelimiter.factory.RateLimiterFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks accuracy rather than speed, run with
+ *   java -cp ratelimiter-benchmarks/target/benchmarks.jar ratelimiter.benchmark.AccuracyCheck
+ * <p>
+ * With a ManualClock, offers 10x the configured rate for 10 seconds and compares what got admitted with what
+ * was configured. Fully deterministic, so it needs none of JMH's forking and warmup.
+ */
+public class AccuracyCheck {
+    public static void main(String[] args) {
+        System.out.printf("%-15s %12s %12s %8s %16s%n",
+                "limiter", "configured/s", "admitted/s", "error", "max in 1s window");
+        for (RateLimiterType type : new RateLimiterType[]{
+                RateLimiterType.FIXED_WINDOW, RateLimiterType.SLIDING_WINDOW, RateLimiterType.TOKEN_BUCKET}) {
+            run(type);
+        }
+    }
+
+    private static void run(RateLimiterType type) {
+        int configuredPerSecond = 100;
+        int seconds = 10;
+        int offeredPerMilli = 10 * configuredPerSecond / 1000;
+        ManualClock clock = new ManualClock();
+        // Start away from zero so the clock doesn't line up with the first window by accident
+        clock.advance(12_345, TimeUnit.MILLISECONDS);
+        IRateLimiter limiter = RateLimiterFactory.getRateLimiter(new RateLimiterConfig.Builder()
+                .withRateLimiterType(type)
+                .withMaxRequests(configuredPerSecond)
+                .withWindowSizeInMillis(1000)
+                .withClock(clock)
+                .build());
+
+        int[] admittedPerMilli = new int[seconds * 1000];
+        long admitted = 0;
+        for (int milli = 0; milli < admittedPerMilli.length; milli++) {
+            for (int i = 0; i < offeredPerMilli; i++) {
+                if (limiter.tryAcquire()) {
+                    admittedPerMilli[milli]++;
+                    admitted++;
+                }
+            }
+            clock.advance(1, TimeUnit.MILLISECONDS);
+        }
+
+        // Largest burst seen by any 1 second window, not just the ones aligned with the limiter's windows
+        int inWindow = 0;
+        int maxInWindow = 0;
+        for (int milli = 0; milli < admittedPerMilli.length; milli++) {
+            inWindow += admittedPerMilli[milli];
+            if (milli >= 1000) {
+                inWindow -= admittedPerMilli[milli - 1000];
+            }
+            maxInWindow = Math.max(maxInWindow, inWindow);
+        }
+
+        double admittedPerSecond = (double) admitted / seconds;
+        System.out.printf("%-15s %12d %12.1f %7.1f%% %16d%n",
+                type, configuredPerSecond, admittedPerSecond,
+                100.0 * (admittedPerSecond - configuredPerSecond) / configuredPerSecond, maxInWindow);
+    }
+}
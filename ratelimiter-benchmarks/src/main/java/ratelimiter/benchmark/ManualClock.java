@@ -0,0 +1,20 @@
+package ratelimiter.benchmark;
+
+import ratelimiter.IClock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Clock that only moves when told to, makes accuracy runs independent of machine speed and scheduling
+public class ManualClock implements IClock {
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long nanoTime() {
+        return nanos.get();
+    }
+
+    public void advance(long duration, TimeUnit unit) {
+        nanos.addAndGet(unit.toNanos(duration));
+    }
+}
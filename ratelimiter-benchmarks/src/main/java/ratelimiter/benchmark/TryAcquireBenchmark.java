@@ -0,0 +1,106 @@
+package ratelimiter.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ratelimiter.AdaptiveRateLimiter;
+import ratelimiter.IRateLimiter;
+import ratelimiter.RateLimiterConfig;
+import ratelimiter.RateLimiterType;
+import ratelimiter.factory.RateLimiterFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention benchmark for tryAcquire, run with
+ *   java -jar ratelimiter-benchmarks/target/benchmarks.jar TryAcquireBenchmark -prof gc
+ * or through main(), which adds the GC profiler itself. -prof gc reports gc.alloc.rate.norm, the bytes
+ * allocated per call. -t overrides the thread count of both methods.
+ * <p>
+ * Two regimes per limiter: ADMITTED (the limit is never reached) and REJECTED (the limit is used up, so
+ * every call is a denial). Throughput gives ops/us, SampleTime the latency percentiles.
+ * The leaky bucket is left out, its tryAcquire only hands out the idle drain slot so there is no contended
+ * path to measure.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class TryAcquireBenchmark {
+    public enum Regime { ADMITTED, REJECTED }
+
+    @Param({"FIXED_WINDOW", "SLIDING_WINDOW", "TOKEN_BUCKET", "ADAPTIVE"})
+    private RateLimiterType type;
+
+    @Param({"ADMITTED", "REJECTED"})
+    private Regime regime;
+
+    private IRateLimiter limiter;
+    private AdaptiveRateLimiter adaptive;
+
+    /*
+      ADMITTED: a limit far above what the machine can reach, with a short window so the sliding
+      window log stays small. REJECTED: one permit per hour, taken before the run starts.
+     */
+    @Setup
+    public void setUp() {
+        RateLimiterConfig.Builder builder = new RateLimiterConfig.Builder().withRateLimiterType(type);
+        if (regime == Regime.ADMITTED) {
+            builder.withMaxRequests(1_000_000_000).withWindowSizeInMillis(10);
+        } else {
+            builder.withMaxRequests(1).withWindowSizeInMillis(TimeUnit.HOURS.toMillis(1));
+        }
+        limiter = RateLimiterFactory.getRateLimiter(builder.build());
+        adaptive = limiter instanceof AdaptiveRateLimiter adaptiveLimiter ? adaptiveLimiter : null;
+        if (regime == Regime.REJECTED) {
+            limiter.tryAcquire();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean uncontended() {
+        return tryAcquire();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean contended() {
+        return tryAcquire();
+    }
+
+    // The adaptive limiter is a concurrency limit, an admitted call has to complete to give its permit back
+    private boolean tryAcquire() {
+        if (adaptive == null) {
+            return limiter.tryAcquire();
+        }
+        long start = System.nanoTime();
+        if (adaptive.tryAcquire()) {
+            adaptive.onComplete(start);
+            return true;
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TryAcquireBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
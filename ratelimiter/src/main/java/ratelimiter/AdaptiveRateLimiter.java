@@ -1,13 +1,241 @@
 package ratelimiter;
 
+import ratelimiter.adaptive.GradientLimitAlgorithm;
+import ratelimiter.adaptive.ILimitAlgorithm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limiter that discovers its own limit.
+ * A permit stands for one request in flight. Callers report back through onComplete(startNanos) (or onDropped
+ * for failures and timeouts), the measured latency is fed to the ILimitAlgorithm which backs the limit off
+ * when latency inflates and probes upwards while it stays healthy.
+ * <p>
+ * maxRequests from the config is only the starting point, the limit moves freely between 1 and
+ * max(maxRequests, DEFAULT_MAX_LIMIT).
+ */
 public class AdaptiveRateLimiter implements IRateLimiter {
+    private static final int DEFAULT_MAX_LIMIT = 1000;
+    private static final double RTT_ALPHA = 0.1;
+
+    private final ILimitAlgorithm algorithm;
+    private final ReentrantLock lock;
+    private final Condition notLimited;
+    private int limit;
+    private int inFlight;
+    // Async acquisitions in arrival order, handed permits by completing requests
+    private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    // Smoothed latency, only used to estimate waits for reserve
+    private double averageRttNanos;
+
+    public AdaptiveRateLimiter(RateLimiterConfig config) {
+        this(new GradientLimitAlgorithm(config.getMaxRequests(), 1,
+                Math.max(config.getMaxRequests(), DEFAULT_MAX_LIMIT)));
+    }
+
+    public AdaptiveRateLimiter(ILimitAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        this.limit = algorithm.getInitialLimit();
+        this.lock = new ReentrantLock(true);
+        this.notLimited = lock.newCondition();
+    }
+
     @Override
     public boolean tryAcquire() {
-        return false;
+        return tryAcquire(1);
+    }
+
+    @Override
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            // No point in timing the wait, only a completing request can free up a permit
+            while (!attemptAcquire(1)) {
+                notLimited.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        lock.lock();
+        try {
+            return attemptAcquire(permits);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(int permits, long timeoutInMillis) throws InterruptedException {
+        checkPermits(permits);
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+        lock.lockInterruptibly();
+        try {
+            while (!attemptAcquire(permits)) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = notLimited.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+      A concurrency limit has no notion of time, so the returned wait is only an estimate:
+      every limit's worth of requests ahead of us costs roughly one average latency.
+     */
+    @Override
+    public long reserve(int permits) {
+        checkPermits(permits);
+        lock.lock();
+        try {
+            inFlight += permits;
+            int overLimit = inFlight - limit;
+            if (overLimit <= 0) {
+                return 0;
+            }
+            long rounds = (overLimit + limit - 1) / limit;
+            return (long) (rounds * averageRttNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync() {
+        lock.lock();
+        try {
+            // Don't overtake callers that are already queued
+            if (waiters.isEmpty() && attemptAcquire(1)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            waiters.add(permit);
+            return permit;
+        } finally {
+            lock.unlock();
+        }
     }
 
+    // A waiter that times out stays queued until it is reached, it is skipped then
     @Override
-    public void acquire() {
+    public CompletableFuture<Void> acquireAsync(long timeoutInMillis) {
+        return acquireAsync().orTimeout(timeoutInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Releases one permit, startNanos is the System.nanoTime() taken when the request was admitted
+    public void onComplete(long startNanos) {
+        release(startNanos, 1, false);
+    }
+
+    public void onComplete(long startNanos, int permits) {
+        release(startNanos, permits, false);
+    }
+
+    // Same as onComplete, but tells the algorithm the request failed or timed out
+    public void onDropped(long startNanos) {
+        release(startNanos, 1, true);
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long startNanos, int permits, boolean dropped) {
+        checkPermits(permits);
+        long rttNanos = System.nanoTime() - startNanos;
+        List<CompletableFuture<Void>> granted;
+        lock.lock();
+        try {
+            averageRttNanos = averageRttNanos == 0
+                    ? rttNanos
+                    : averageRttNanos + (rttNanos - averageRttNanos) * RTT_ALPHA;
+            // Measure against the load the request saw, before taking it out of flight.
+            // Never below 1, at 0 nothing would be admitted again and no sample could raise it
+            limit = Math.max(1, algorithm.update(limit, rttNanos, inFlight, dropped));
+            inFlight = Math.max(0, inFlight - permits);
+            granted = grantWaiters();
+        } finally {
+            lock.unlock();
+        }
+        completeOutsideLock(granted);
+    }
+
+    // Hands free permits to queued async waiters first, then wakes the blocked ones for whatever is left
+    private List<CompletableFuture<Void>> grantWaiters() {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        while (inFlight < limit && !waiters.isEmpty()) {
+            CompletableFuture<Void> waiter = waiters.poll();
+            if (!waiter.isDone()) {
+                inFlight++;
+                granted.add(waiter);
+            }
+        }
+        if (inFlight < limit) {
+            notLimited.signalAll();
+        }
+        return granted;
+    }
+
+    /*
+      Completing runs the waiter's callbacks on this thread, so it must not happen under the lock.
+      A waiter that timed out or was cancelled in the meantime gives its permit straight back.
+     */
+    private void completeOutsideLock(List<CompletableFuture<Void>> granted) {
+        for (CompletableFuture<Void> waiter : granted) {
+            if (!waiter.complete(null)) {
+                List<CompletableFuture<Void>> regranted;
+                lock.lock();
+                try {
+                    inFlight = Math.max(0, inFlight - 1);
+                    regranted = grantWaiters();
+                } finally {
+                    lock.unlock();
+                }
+                completeOutsideLock(regranted);
+            }
+        }
+    }
+
+    private boolean attemptAcquire(int permits) {
+        if (inFlight + permits <= limit) {
+            inFlight += permits;
+            return true;
+        }
+        return false;
+    }
 
+    private void checkPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
     }
 }
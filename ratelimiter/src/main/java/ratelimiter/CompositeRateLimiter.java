@@ -0,0 +1,220 @@
+package ratelimiter;
+
+import ratelimiter.factory.RateLimiterFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Stacks several limits (e.g. 10/s and 500/min per user, plus 50k/s global) and applies them atomically.
+ * All tier locks are taken once, every tier is checked, and the permits are debited from all of them or
+ * from none, so a request rejected by one tier never consumes quota from the others.
+ * <p>
+ * Tiers are fixed window, sliding window or token bucket limiters. A tier can be shared between composites
+ * (the global tier in the example above), the locks are always taken in the same order so that is deadlock free.
+ */
+public class CompositeRateLimiter implements IRateLimiter {
+    // Tie-breaker for the rare tiers whose identity hashes collide, see Java Concurrency in Practice 10.1.2
+    private static final ReentrantLock TIE_LOCK = new ReentrantLock();
+
+    private final List<Tier> tiers;
+    private final boolean needsTieLock;
+
+    private CompositeRateLimiter(Builder builder) {
+        List<Tier> ordered = new ArrayList<>(builder.tiers);
+        ordered.sort(Comparator.comparingInt(tier -> tier.lockOrder));
+        boolean collision = false;
+        for (int i = 1; i < ordered.size(); i++) {
+            collision |= ordered.get(i).lockOrder == ordered.get(i - 1).lockOrder;
+        }
+        this.tiers = ordered;
+        this.needsTieLock = collision;
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /*
+      Reserves and sleeps outside of the tier locks. An interrupt while sleeping does not give
+      the reserved permits back.
+     */
+    @Override
+    public void acquire() throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(reserve(1));
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        return tryAcquireWithDecision(permits).isAllowed();
+    }
+
+    @Override
+    public boolean tryAcquire(int permits, long timeoutInMillis) throws InterruptedException {
+        long waitNanos = reserveWithin(permits, TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        if (waitNanos < 0) {
+            return false;
+        }
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return true;
+    }
+
+    @Override
+    public long reserve(int permits) {
+        return reserveWithin(permits, Long.MAX_VALUE);
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync() {
+        return SharedTimer.completeAfter(reserve(1));
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync(long timeoutInMillis) {
+        long waitNanos = reserveWithin(1, TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        if (waitNanos < 0) {
+            return CompletableFuture.failedFuture(new TimeoutException("Permit not available within timeout"));
+        }
+        return SharedTimer.completeAfter(waitNanos);
+    }
+
+    // Same as tryAcquire(permits), but tells which tiers rejected the request and for how long
+    public RateLimitDecision tryAcquireWithDecision(int permits) {
+        checkPermits(permits);
+        lockAll();
+        try {
+            List<RateLimitDecision.Rejection> rejections = null;
+            for (Tier tier : tiers) {
+                long waitNanos = tier.peekWait.applyAsLong(permits);
+                if (waitNanos > 0) {
+                    if (rejections == null) {
+                        rejections = new ArrayList<>();
+                    }
+                    rejections.add(new RateLimitDecision.Rejection(tier.name, waitNanos));
+                }
+            }
+            if (rejections != null) {
+                return RateLimitDecision.rejected(rejections);
+            }
+            debitAll(permits);
+            return RateLimitDecision.allowed();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // The slowest tier decides the wait, every tier books the permits for its own slot
+    private long reserveWithin(int permits, long timeoutNanos) {
+        checkPermits(permits);
+        lockAll();
+        try {
+            long waitNanos = 0;
+            for (Tier tier : tiers) {
+                waitNanos = Math.max(waitNanos, tier.peekWait.applyAsLong(permits));
+            }
+            if (waitNanos > timeoutNanos) {
+                return -1;
+            }
+            debitAll(permits);
+            return waitNanos;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private void debitAll(int permits) {
+        for (Tier tier : tiers) {
+            tier.debit.accept(permits);
+        }
+    }
+
+    private void lockAll() {
+        if (needsTieLock) {
+            TIE_LOCK.lock();
+        }
+        for (Tier tier : tiers) {
+            tier.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = tiers.size() - 1; i >= 0; i--) {
+            tiers.get(i).lock.unlock();
+        }
+        if (needsTieLock) {
+            TIE_LOCK.unlock();
+        }
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+    }
+
+    private static class Tier {
+        private final String name;
+        private final ReentrantLock lock;
+        private final int lockOrder;
+        private final IntToLongFunction peekWait;
+        private final IntConsumer debit;
+
+        private Tier(String name, ReentrantLock lock, IntToLongFunction peekWait, IntConsumer debit) {
+            this.name = name;
+            this.lock = lock;
+            this.lockOrder = System.identityHashCode(lock);
+            this.peekWait = peekWait;
+            this.debit = debit;
+        }
+    }
+
+    public static class Builder {
+        private final List<Tier> tiers = new ArrayList<>();
+        private final Map<IRateLimiter, String> limiters = new IdentityHashMap<>();
+
+        public Builder withTier(String name, RateLimiterConfig config) {
+            // Checked before the factory runs, a leaky bucket would already have started its drain thread
+            RateLimiterType type = config.getRateLimiterType();
+            if (type != RateLimiterType.FIXED_WINDOW && type != RateLimiterType.SLIDING_WINDOW
+                    && type != RateLimiterType.TOKEN_BUCKET) {
+                throw new IllegalArgumentException("Rate limiter cannot be used as a composite tier: " + type);
+            }
+            return withTier(name, RateLimiterFactory.getRateLimiter(config));
+        }
+
+        // Adds an existing limiter as a tier, so it can be shared with other composites or used on its own
+        public Builder withTier(String name, IRateLimiter limiter) {
+            if (limiters.put(limiter, name) != null) {
+                throw new IllegalArgumentException("Rate limiter is already a tier: " + name);
+            }
+            if (limiter instanceof FixedWindowRateLimiter fixedWindow) {
+                tiers.add(new Tier(name, fixedWindow.getLock(), fixedWindow::peekWait, fixedWindow::debit));
+            } else if (limiter instanceof SlidingWindowRateLimiter slidingWindow) {
+                tiers.add(new Tier(name, slidingWindow.getLock(), slidingWindow::peekWait, slidingWindow::debit));
+            } else if (limiter instanceof TokenBucketRateLimiter tokenBucket) {
+                tiers.add(new Tier(name, tokenBucket.getLock(), tokenBucket::peekWait, tokenBucket::debit));
+            } else {
+                throw new IllegalArgumentException("Rate limiter cannot be used as a composite tier: "
+                        + limiter.getClass().getSimpleName());
+            }
+            return this;
+        }
+
+        public CompositeRateLimiter build() {
+            if (tiers.isEmpty()) {
+                throw new IllegalArgumentException("Composite rate limiter needs at least one tier");
+            }
+            return new CompositeRateLimiter(this);
+        }
+    }
+}
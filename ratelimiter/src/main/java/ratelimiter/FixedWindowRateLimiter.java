@@ -1,22 +1,29 @@
 package ratelimiter;
 
+import instrumentation.RateLimiterThrottleEvent;
+
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class FixedWindowRateLimiter implements IRateLimiter{
     private final RateLimiterConfig config;
+    private final IClock clock;
     private long windowStartTime;
-    private int currentCount;
+    // Can run past maxRequests, reservations beyond this window are booked against the following ones
+    private long currentCount;
     private final ReentrantLock lock;
     private final Condition notLimited;
 
     public FixedWindowRateLimiter(RateLimiterConfig config) {
         this.config = config;
+        this.clock = config.getClock();
         currentCount = 0;
         lock = new ReentrantLock(true); // for fairness
         notLimited = lock.newCondition();
-        windowStartTime = System.currentTimeMillis();
+        windowStartTime = clock.currentTimeMillis();
     }
 
     @Override
@@ -39,36 +46,152 @@ public class FixedWindowRateLimiter implements IRateLimiter{
     @Override
     public void acquire() throws InterruptedException {
         lock.lockInterruptibly();
+        RateLimiterThrottleEvent throttleEvent = null;
         try {
             while (!attemptAcquire()) {
-                long waitTime = windowStartTime + config.getWindowSizeInMillis() - System.currentTimeMillis();
+                long waitTime = windowStartTime + config.getWindowSizeInMillis() - clock.currentTimeMillis();
                 if (waitTime <= 0) {
-                    System.out.println("Window elapsed, will attempt to acquire again");
+                    // Window elapsed, attempt to acquire again
                     continue;
                 }
-                System.out.println("Waiting for - " + waitTime);
-                if (!notLimited.await(waitTime, TimeUnit.MILLISECONDS)) {
-                    System.out.println("Timeout in current window, will attempt to acquire again");
+                if (throttleEvent == null) {
+                    throttleEvent = RateLimiterThrottleEvent.start(this);
                 }
+                throttleEvent.onWait();
+                // Timing out means the current window is over, the loop attempts to acquire again
+                notLimited.await(waitTime, TimeUnit.MILLISECONDS);
             }
         } finally {
+            if (throttleEvent != null) {
+                throttleEvent.finish();
+            }
             lock.unlock();
         }
     }
 
-    private boolean attemptAcquire() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - windowStartTime >= config.getWindowSizeInMillis()) {
-            windowStartTime = currentTime;
-            currentCount = 0;
-            notLimited.signalAll();
+    @Override
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        lock.lock();
+        try {
+            return attemptAcquire(permits);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(int permits, long timeoutInMillis) throws InterruptedException {
+        long waitNanos = reserveWithin(permits, TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        if (waitNanos < 0) {
+            return false;
+        }
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return true;
+    }
+
+    @Override
+    public long reserve(int permits) {
+        return reserveWithin(permits, Long.MAX_VALUE);
+    }
+
+    /*
+      Unlike acquire(), waiting callers are not woken together at the window boundary:
+      each one is completed by the shared timer at the start of the window its permit was booked in.
+     */
+    @Override
+    public CompletableFuture<Void> acquireAsync() {
+        return SharedTimer.completeAfter(reserve(1));
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync(long timeoutInMillis) {
+        long waitNanos = reserveWithin(1, TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        if (waitNanos < 0) {
+            return CompletableFuture.failedFuture(new TimeoutException("Permit not available within timeout"));
         }
+        return SharedTimer.completeAfter(waitNanos);
+    }
 
-        if (currentCount < config.getMaxRequests()) {
-            currentCount++;
+    // Debits the permits if they are available within the timeout and returns the wait, -1 otherwise
+    private long reserveWithin(int permits, long timeoutNanos) {
+        checkPermits(permits);
+        lock.lock();
+        try {
+            long currentTime = clock.currentTimeMillis();
+            rollWindow(currentTime);
+            long waitNanos = nanosUntilAvailable(permits, currentTime);
+            if (waitNanos > timeoutNanos) {
+                return -1;
+            }
+            // Permits beyond this window are booked against the following windows
+            currentCount += permits;
+            return waitNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean attemptAcquire() {
+        return attemptAcquire(1);
+    }
+
+    private boolean attemptAcquire(int permits) {
+        rollWindow(clock.currentTimeMillis());
+
+        if (currentCount + permits <= config.getMaxRequests()) {
+            currentCount += permits;
             return true;
         }
 
         return false;
     }
+
+    private void rollWindow(long currentTime) {
+        long elapsed = currentTime - windowStartTime;
+        if (elapsed < config.getWindowSizeInMillis()) {
+            return;
+        }
+        long windowsElapsed = elapsed / config.getWindowSizeInMillis();
+        // Reservations spill into later windows, each elapsed window pays off up to maxRequests of them
+        currentCount = Math.max(0, currentCount - windowsElapsed * config.getMaxRequests());
+        if (currentCount > 0) {
+            // Keep the windows aligned with the ones the outstanding reservations were booked against
+            windowStartTime += windowsElapsed * config.getWindowSizeInMillis();
+        } else {
+            windowStartTime = currentTime;
+        }
+        notLimited.signalAll();
+    }
+
+    private long nanosUntilAvailable(int permits, long currentTime) {
+        // Index of the window the last of these permits falls into, 0 being the current one
+        long windowIndex = (currentCount + permits - 1) / config.getMaxRequests();
+        if (windowIndex == 0) {
+            return 0;
+        }
+        long availableAt = windowStartTime + windowIndex * config.getWindowSizeInMillis();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, availableAt - currentTime));
+    }
+
+    // Hooks for CompositeRateLimiter, which calls them while holding the locks of all of its tiers
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    long peekWait(int permits) {
+        long currentTime = clock.currentTimeMillis();
+        rollWindow(currentTime);
+        return nanosUntilAvailable(permits, currentTime);
+    }
+
+    void debit(int permits) {
+        currentCount += permits;
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+    }
 }
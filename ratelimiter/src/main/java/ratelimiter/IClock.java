@@ -0,0 +1,27 @@
+package ratelimiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time source of the limiters, replaceable so tests and benchmarks can drive time deterministically.
+ * Limiters only ever compare readings of the same method, so the two need not share an origin.
+ */
+public interface IClock {
+    IClock SYSTEM = new IClock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    long nanoTime();
+
+    default long currentTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanoTime());
+    }
+}
@@ -1,6 +1,32 @@
 package ratelimiter;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface IRateLimiter {
     boolean tryAcquire();
     void acquire() throws InterruptedException;
+
+    // Acquires all permits at once or none of them, without blocking
+    boolean tryAcquire(int permits);
+
+    // Acquires all permits if they can be granted within the timeout, sleeping (outside the lock) until then
+    boolean tryAcquire(int permits, long timeoutInMillis) throws InterruptedException;
+
+    /**
+     * Debits the permits immediately and returns how long, in nanoseconds, the caller should wait
+     * before using them. The limiter lock is not held while the caller waits, so the caller is free
+     * to sleep, schedule the work for later, or hand it to another thread.
+     */
+    long reserve(int permits);
+
+    /*
+      Completes once a permit is granted, without parking the calling thread. Non-async continuations
+      (thenRun, thenCompose, ...) run on the completing thread: a SharedTimer dispatch thread for the limiters
+      that wait on the timer, the drain thread for the leaky bucket, the releasing caller for the adaptive
+      limiter. Anything slow or blocking belongs in the *Async variants with an executor of its own.
+     */
+    CompletableFuture<Void> acquireAsync();
+
+    // Same as acquireAsync, but fails with a TimeoutException if the permit can't be granted within the timeout
+    CompletableFuture<Void> acquireAsync(long timeoutInMillis);
 }
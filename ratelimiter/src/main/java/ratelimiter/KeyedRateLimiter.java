@@ -0,0 +1,43 @@
+package ratelimiter;
+
+import cache.ConcurrentCache;
+import cache.ICache;
+import ratelimiter.factory.RateLimiterFactory;
+
+/**
+ * One limiter per key (user, API key, IP) from the same config, e.g. 100 requests/s for every user.
+ * The limiters live in a ConcurrentCache, so the number of keys tracked is bounded and keys that went idle
+ * are dropped after expireAfterAccess. The first request for a key creates its limiter exactly once, even
+ * when many requests for a new key arrive at the same time.
+ * <p>
+ * A key evicted by the size bound while still active starts over with a fresh limiter, so maxKeys should
+ * comfortably exceed the number of keys active within one window.
+ */
+public class KeyedRateLimiter<K> {
+    private final RateLimiterConfig config;
+    private final ICache<K, IRateLimiter> limiters;
+
+    public KeyedRateLimiter(RateLimiterConfig config, long maxKeys, long expireAfterAccessMillis) {
+        // The leaky bucket owns a drain thread, nothing would shut it down when its key is evicted
+        if (config.getRateLimiterType() == RateLimiterType.LEAKY_BUCKET) {
+            throw new IllegalArgumentException("Leaky bucket cannot be used as a keyed rate limiter");
+        }
+        this.config = config;
+        this.limiters = new ConcurrentCache.Builder<K, IRateLimiter>()
+                .withMaximumSize(maxKeys)
+                .withExpireAfterAccessMillis(expireAfterAccessMillis)
+                .build();
+    }
+
+    public boolean tryAcquire(K key) {
+        return limiterFor(key).tryAcquire();
+    }
+
+    public boolean tryAcquire(K key, int permits) {
+        return limiterFor(key).tryAcquire(permits);
+    }
+
+    public IRateLimiter limiterFor(K key) {
+        return limiters.get(key, k -> RateLimiterFactory.getRateLimiter(config));
+    }
+}
@@ -1,13 +1,256 @@
 package ratelimiter;
 
-public class LeakyBucketRateLimiter implements IRateLimiter{
+import blockingqueue.BlockingQueueWithLock;
+import blockingqueue.IBlockingQueue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Leaky bucket as a traffic shaper: requests are queued in the bucket and a single drain thread lets one
+ * permit leak out every (windowSize / maxRequests), so bursts reach the downstream as a constant rate.
+ * The bucket holds at most maxRequests waiting requests, anything beyond that overflows and is rejected.
+ * <p>
+ * Callers never spin on a lock, they wait on their own future which only the drain thread completes.
+ */
+public class LeakyBucketRateLimiter implements IRateLimiter {
+    private final IBlockingQueue<Pending> bucket;
+    private final long leakIntervalNanos;
+    // Permits still queued in the bucket, used to estimate how long a new request will wait
+    private final AtomicLong queuedPermits = new AtomicLong();
+    // Set when the drain found the bucket empty, the unused outflow slot can be granted without queueing
+    private final AtomicBoolean idleSlot = new AtomicBoolean(true);
+    private final ScheduledExecutorService drain;
+    private volatile long nextLeakTime;
+    private volatile boolean isShutdown;
+
+    public LeakyBucketRateLimiter(RateLimiterConfig config) {
+        this.bucket = new BlockingQueueWithLock<>(config.getMaxRequests());
+        this.leakIntervalNanos = Math.max(1,
+                TimeUnit.MILLISECONDS.toNanos(config.getWindowSizeInMillis()) / config.getMaxRequests());
+        this.drain = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaky-bucket-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.nextLeakTime = System.nanoTime() + leakIntervalNanos;
+        drain.scheduleAtFixedRate(this::leak, leakIntervalNanos, leakIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
     @Override
     public boolean tryAcquire() {
-        return false;
+        return tryAcquire(1);
+    }
+
+    @Override
+    public void acquire() throws InterruptedException {
+        checkIfShutdown();
+        if (tryAcquire(1)) {
+            return;
+        }
+        Pending pending = new Pending(1);
+        queuedPermits.incrementAndGet();
+        try {
+            // Blocks while the bucket is full, which pushes back on the producer
+            bucket.put(pending);
+        } catch (InterruptedException e) {
+            // Never made it into the bucket, so the drain will not count it down
+            queuedPermits.decrementAndGet();
+            throw e;
+        }
+        awaitPermit(pending);
+    }
+
+    // Only the idle outflow slot can be handed out without queueing, so at most one permit is granted
+    @Override
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        checkIfShutdown();
+        return permits == 1 && bucket.isEmpty() && idleSlot.compareAndSet(true, false);
     }
 
     @Override
-    public void acquire() {
+    public boolean tryAcquire(int permits, long timeoutInMillis) throws InterruptedException {
+        if (tryAcquire(permits)) {
+            return true;
+        }
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+        if (nanosUntilDrained(permits) > timeoutNanos) {
+            return false;
+        }
+        Pending pending = new Pending(permits);
+        if (!offer(pending)) {
+            return false;
+        }
+        try {
+            pending.permit.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            // Give up our place in the bucket, unless the drain released us in the meantime
+            return !pending.permit.cancel(false);
+        } catch (InterruptedException e) {
+            pending.permit.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public long reserve(int permits) {
+        if (tryAcquire(permits)) {
+            return 0;
+        }
+        long waitNanos = nanosUntilDrained(permits);
+        // Nobody waits on a reservation, it only holds its place in the outflow
+        if (!offer(new Pending(permits))) {
+            throw new RejectedExecutionException("Leaky bucket is full");
+        }
+        return waitNanos;
+    }
+
+    /*
+      The returned future is the queued request itself: cancelling it, or letting the timed variant
+      expire, gives up the place in the bucket and the drain skips it.
+     */
+    @Override
+    public CompletableFuture<Void> acquireAsync() {
+        if (tryAcquire(1)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueue();
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync(long timeoutInMillis) {
+        if (tryAcquire(1)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (nanosUntilDrained(1) > TimeUnit.MILLISECONDS.toNanos(timeoutInMillis)) {
+            return CompletableFuture.failedFuture(new TimeoutException("Permit not available within timeout"));
+        }
+        return enqueue().orTimeout(timeoutInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the task once a permit leaks out of the bucket. The task runs on the common pool rather than on
+     * the drain thread, so a slow task cannot hold up the outflow. The returned future fails with
+     * {@link RejectedExecutionException} if the bucket is full.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return acquireAsync().thenApplyAsync(ignored -> {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    public CompletableFuture<Void> submit(Runnable task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public void shutdown() throws InterruptedException {
+        isShutdown = true;
+        drain.shutdownNow();
+        drain.awaitTermination(leakIntervalNanos, TimeUnit.NANOSECONDS);
+        while (!bucket.isEmpty()) {
+            bucket.take().permit.cancel(false);
+        }
+    }
+
+    private void leak() {
+        nextLeakTime = System.nanoTime() + leakIntervalNanos;
+        try {
+            // Drop requests whose callers timed out or were interrupted, they should not use up the outflow
+            Pending head = bucket.peek();
+            while (head != null && head.permit.isDone()) {
+                bucket.take();
+                queuedPermits.addAndGet(-head.remaining);
+                head = bucket.peek();
+            }
+            if (head == null) {
+                idleSlot.set(true);
+                return;
+            }
+            idleSlot.set(false);
+            queuedPermits.decrementAndGet();
+            // The drain is the only consumer, so the head we peeked is still the one we take
+            if (--head.remaining == 0) {
+                bucket.take();
+                head.permit.complete(null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> enqueue() {
+        Pending pending = new Pending(1);
+        if (!offer(pending)) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Leaky bucket is full"));
+        }
+        return pending.permit;
+    }
+
+    private boolean offer(Pending pending) {
+        checkIfShutdown();
+        queuedPermits.addAndGet(pending.remaining);
+        if (!bucket.offer(pending)) {
+            queuedPermits.addAndGet(-pending.remaining);
+            return false;
+        }
+        return true;
+    }
+
+    private void awaitPermit(Pending pending) throws InterruptedException {
+        try {
+            pending.permit.get();
+        } catch (InterruptedException e) {
+            pending.permit.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private long nanosUntilDrained(int permits) {
+        long untilNextLeak = Math.max(0, nextLeakTime - System.nanoTime());
+        return untilNextLeak + (queuedPermits.get() + permits - 1) * leakIntervalNanos;
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+    }
+
+    private void checkIfShutdown() {
+        if (isShutdown) {
+            throw new IllegalStateException("Trying to access rate limiter, but is shutdown");
+        }
+    }
+
+    // A queued request, weighted requests take one leak interval per permit before they are released
+    private static class Pending {
+        private final CompletableFuture<Void> permit = new CompletableFuture<>();
+        private int remaining;
 
+        private Pending(int permits) {
+            this.remaining = permits;
+        }
     }
 }
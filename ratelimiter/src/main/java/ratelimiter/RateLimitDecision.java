@@ -0,0 +1,63 @@
+package ratelimiter;
+
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a CompositeRateLimiter check, with every tier that said no and how long until it would say yes
+public class RateLimitDecision {
+    private static final RateLimitDecision ALLOWED = new RateLimitDecision(Collections.emptyList());
+
+    private final List<Rejection> rejections;
+
+    private RateLimitDecision(List<Rejection> rejections) {
+        this.rejections = rejections;
+    }
+
+    static RateLimitDecision allowed() {
+        return ALLOWED;
+    }
+
+    static RateLimitDecision rejected(List<Rejection> rejections) {
+        return new RateLimitDecision(Collections.unmodifiableList(rejections));
+    }
+
+    public boolean isAllowed() {
+        return rejections.isEmpty();
+    }
+
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    // Longest wait among the rejecting tiers, i.e. when a retry can succeed (e.g. for a Retry-After header)
+    public long getRetryAfterNanos() {
+        long retryAfter = 0;
+        for (Rejection rejection : rejections) {
+            retryAfter = Math.max(retryAfter, rejection.getRetryAfterNanos());
+        }
+        return retryAfter;
+    }
+
+    public static class Rejection {
+        private final String tierName;
+        private final long retryAfterNanos;
+
+        Rejection(String tierName, long retryAfterNanos) {
+            this.tierName = tierName;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public String getTierName() {
+            return tierName;
+        }
+
+        public long getRetryAfterNanos() {
+            return retryAfterNanos;
+        }
+
+        @Override
+        public String toString() {
+            return tierName + " (retry after " + retryAfterNanos / 1_000_000 + "ms)";
+        }
+    }
+}
@@ -4,11 +4,13 @@ public class RateLimiterConfig {
     private RateLimiterType rateLimiterType;
     private int maxRequests;
     private long windowSizeInMillis;
+    private IClock clock;
 
     private RateLimiterConfig(Builder builder) {
         this.rateLimiterType = builder.rateLimiterType;
         this.maxRequests = builder.maxRequests;
         this.windowSizeInMillis = builder.windowSizeInMillis;
+        this.clock = builder.clock;
     }
 
     public RateLimiterType getRateLimiterType() {
@@ -23,10 +25,15 @@ public class RateLimiterConfig {
         return windowSizeInMillis;
     }
 
+    public IClock getClock() {
+        return clock;
+    }
+
     public static class Builder {
         private RateLimiterType rateLimiterType = RateLimiterType.FIXED_WINDOW;
         private int maxRequests;
         private long windowSizeInMillis;
+        private IClock clock = IClock.SYSTEM;
 
         public Builder withRateLimiterType(RateLimiterType rateLimiterType) {
             this.rateLimiterType = rateLimiterType;
@@ -43,8 +50,30 @@ public class RateLimiterConfig {
             return this;
         }
 
+        // Only the window and bucket limiters read time through the clock, blocking waits still use real time
+        public Builder withClock(IClock clock) {
+            this.clock = clock;
+            return this;
+        }
+
         public RateLimiterConfig build() {
+            validate();
             return new RateLimiterConfig(this);
         }
+
+        private void validate() {
+            if (rateLimiterType == null) {
+                throw new IllegalArgumentException("Rate limiter type is required");
+            }
+            if (maxRequests <= 0) {
+                throw new IllegalArgumentException("Max requests must be positive");
+            }
+            if (windowSizeInMillis <= 0) {
+                throw new IllegalArgumentException("Window size must be positive");
+            }
+            if (clock == null) {
+                throw new IllegalArgumentException("Clock is required");
+            }
+        }
     }
 }
@@ -3,5 +3,7 @@ package ratelimiter;
 public enum RateLimiterType {
     FIXED_WINDOW,
     SLIDING_WINDOW,
-    TOKEN_BUCKET
+    TOKEN_BUCKET,
+    LEAKY_BUCKET,
+    ADAPTIVE
 }
@@ -0,0 +1,50 @@
+package ratelimiter;
+
+import scheduler.TimingWheelScheduler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One timer thread shared by every limiter, used to complete async acquisitions once their permits are due.
+ * Waiting callers then cost one small scheduled task each instead of a parked thread, and with the timing
+ * wheel scheduling one is O(1) however many are waiting.
+ * <p>
+ * Futures are completed on a cached pool of daemon dispatch threads, not on the timer thread. Non-async
+ * continuations run on the completing thread, so a slow callback attached to one limiter's future would
+ * otherwise delay the wake-ups of every other limiter. (Not the common ForkJoinPool: on small machines it has a
+ * single worker and the same problem.)
+ */
+public final class SharedTimer {
+    private static final AtomicInteger DISPATCH_THREAD_IDS = new AtomicInteger();
+    private static final ExecutorService DISPATCH = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "rate-limiter-dispatch-" + DISPATCH_THREAD_IDS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final TimingWheelScheduler TIMER = new TimingWheelScheduler.Builder()
+            .withTickMillis(1)
+            .withThreadName("rate-limiter-timer")
+            .withExecutor(DISPATCH)
+            .build();
+
+    private SharedTimer() {
+    }
+
+    /*
+      Completes up to one tick (1ms) late, never early. Permits are debited at reservation, so the order in
+      which futures due within the same tick complete doesn't matter. Cancelling the returned future does not
+      give the reserved permits back.
+     */
+    public static CompletableFuture<Void> completeAfter(long delayNanos) {
+        if (delayNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        TIMER.schedule(() -> permit.complete(null), delayNanos, TimeUnit.NANOSECONDS);
+        return permit;
+    }
+}
@@ -1,20 +1,24 @@
 package ratelimiter;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import instrumentation.RateLimiterThrottleEvent;
+
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class SlidingWindowRateLimiter implements IRateLimiter {
     private RateLimiterConfig config;
-    private Queue<Long> requestTimestamps;
+    private IClock clock;
+    private TimestampLog requestTimestamps;
     private ReentrantLock lock;
     private Condition notLimited;
 
     public SlidingWindowRateLimiter(RateLimiterConfig config) {
         this.config = config;
-        this.requestTimestamps = new LinkedList<>();
+        this.clock = config.getClock();
+        this.requestTimestamps = new TimestampLog(Math.min(config.getMaxRequests(), 1024));
         this.lock = new ReentrantLock(true);
         this.notLimited = lock.newCondition();
     }
@@ -29,43 +33,225 @@ public class SlidingWindowRateLimiter implements IRateLimiter {
         }
     }
 
+    @Override
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        this.lock.lock();
+        try {
+            return attemptAcquire(permits);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(int permits, long timeoutInMillis) throws InterruptedException {
+        long waitNanos = reserveWithin(permits, TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        if (waitNanos < 0) {
+            return false;
+        }
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return true;
+    }
+
+    @Override
+    public long reserve(int permits) {
+        return reserveWithin(permits, Long.MAX_VALUE);
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync() {
+        return SharedTimer.completeAfter(reserve(1));
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync(long timeoutInMillis) {
+        long waitNanos = reserveWithin(1, TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        if (waitNanos < 0) {
+            return CompletableFuture.failedFuture(new TimeoutException("Permit not available within timeout"));
+        }
+        return SharedTimer.completeAfter(waitNanos);
+    }
+
+    // Records the permits if they are available within the timeout and returns the wait, -1 otherwise
+    private long reserveWithin(int permits, long timeoutNanos) {
+        checkPermits(permits);
+        this.lock.lock();
+        try {
+            long currentTime = clock.currentTimeMillis();
+            evictExpired(currentTime);
+            long[] slots = slotsFor(permits, currentTime);
+            long waitNanos = TimeUnit.MILLISECONDS.toNanos(slots[permits - 1] - currentTime);
+            if (waitNanos > timeoutNanos) {
+                return -1;
+            }
+            record(slots);
+            return waitNanos;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
     private boolean attemptAcquire() {
-        long currentTime = System.currentTimeMillis();
+        return attemptAcquire(1);
+    }
+
+    private boolean attemptAcquire(int permits) {
+        long currentTime = clock.currentTimeMillis();
+        evictExpired(currentTime);
+
+        if (this.requestTimestamps.size() + permits <= config.getMaxRequests()) {
+            for (int i = 0; i < permits; i++) {
+                requestTimestamps.addLast(currentTime);
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    private void evictExpired(long currentTime) {
         // Window start time is dynamic
         long windowStart = currentTime - config.getWindowSizeInMillis();
-        while (!this.requestTimestamps.isEmpty() && this.requestTimestamps.peek() <= windowStart) {
-            this.requestTimestamps.remove();
+        while (!this.requestTimestamps.isEmpty() && this.requestTimestamps.first() <= windowStart) {
+            this.requestTimestamps.removeFirst();
             this.notLimited.signalAll();
         }
+    }
 
-        if (this.requestTimestamps.size() < config.getMaxRequests()) {
-            requestTimestamps.add(currentTime);
-            return true;
+    /*
+      When does each of the next permits become usable?
+        A permit can be used once the request maxRequests places ahead of it in the log has slid out of
+        the window. For reservations that request may itself be a reservation, so the slots can lie in
+        the future. They stay in the log like any other request and count against later callers.
+     */
+    private long[] slotsFor(int permits, long currentTime) {
+        int logSize = this.requestTimestamps.size();
+        long[] slots = new long[permits];
+        for (int i = 0; i < permits; i++) {
+            int ahead = logSize + i - config.getMaxRequests();
+            long slot;
+            if (ahead < 0) {
+                slot = currentTime;
+            } else if (ahead < logSize) {
+                slot = this.requestTimestamps.get(ahead) + config.getWindowSizeInMillis();
+            } else {
+                slot = slots[ahead - logSize] + config.getWindowSizeInMillis();
+            }
+            slots[i] = Math.max(slot, currentTime);
         }
+        return slots;
+    }
 
-        return false;
+    private void record(long[] slots) {
+        for (long slot : slots) {
+            this.requestTimestamps.addLast(slot);
+        }
+    }
+
+    // Hooks for CompositeRateLimiter, which calls them while holding the locks of all of its tiers
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    long peekWait(int permits) {
+        long currentTime = clock.currentTimeMillis();
+        evictExpired(currentTime);
+        long[] slots = slotsFor(permits, currentTime);
+        return TimeUnit.MILLISECONDS.toNanos(slots[permits - 1] - currentTime);
+    }
+
+    // Recomputed rather than carried over from peekWait, the caller still holds the lock so the log is the same
+    void debit(int permits) {
+        long currentTime = clock.currentTimeMillis();
+        evictExpired(currentTime);
+        record(slotsFor(permits, currentTime));
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
     }
 
     @Override
     public void acquire() throws InterruptedException {
         this.lock.lockInterruptibly();
+        RateLimiterThrottleEvent throttleEvent = null;
         try {
             while (!attemptAcquire()) {
-                Long oldestTimestamp = requestTimestamps.peek();
-                if (oldestTimestamp == null) {
+                if (requestTimestamps.isEmpty()) {
                     continue;
                 }
-                long waitTime = oldestTimestamp + config.getWindowSizeInMillis() - System.currentTimeMillis();
+                long waitTime = requestTimestamps.first() + config.getWindowSizeInMillis() - clock.currentTimeMillis();
                 if (waitTime <= 0) {
                     continue;
                 }
-                System.out.println("Waiting for: " + waitTime + "ms");
-                if (!notLimited.await(waitTime, TimeUnit.MILLISECONDS)) {
-                    System.out.println("Await timeout, retrying...");
+                if (throttleEvent == null) {
+                    throttleEvent = RateLimiterThrottleEvent.start(this);
                 }
+                throttleEvent.onWait();
+                // Timing out means the oldest request left the window, the loop retries either way
+                notLimited.await(waitTime, TimeUnit.MILLISECONDS);
             }
         } finally {
+            if (throttleEvent != null) {
+                throttleEvent.finish();
+            }
             this.lock.unlock();
         }
     }
+
+    /*
+      Ring buffer of timestamps, oldest first. Unlike a LinkedList it needs no boxing and gives
+      slotsFor O(1) access to the request maxRequests places back, so no copy of the log per check.
+     */
+    private static class TimestampLog {
+        private long[] timestamps;
+        private int head;
+        private int size;
+
+        private TimestampLog(int initialCapacity) {
+            this.timestamps = new long[Math.max(1, initialCapacity)];
+        }
+
+        private void addLast(long timestamp) {
+            if (size == timestamps.length) {
+                grow();
+            }
+            timestamps[(head + size) % timestamps.length] = timestamp;
+            size++;
+        }
+
+        private long first() {
+            return timestamps[head];
+        }
+
+        private void removeFirst() {
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+
+        private long get(int index) {
+            return timestamps[(head + index) % timestamps.length];
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        // Reservations far ahead can push the log past maxRequests entries
+        private void grow() {
+            long[] grown = new long[timestamps.length * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = get(i);
+            }
+            timestamps = grown;
+            head = 0;
+        }
+    }
 }
@@ -1,6 +1,10 @@
 package ratelimiter;
 
+import instrumentation.RateLimiterThrottleEvent;
+
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -8,15 +12,17 @@ public class TokenBucketRateLimiter implements IRateLimiter {
     private double currentTokens;
     private long lastRefillTime;
     private RateLimiterConfig config;
+    private IClock clock;
     private ReentrantLock lock;
     private Condition notLimited;
 
     public TokenBucketRateLimiter(RateLimiterConfig config) {
         this.config = config;
+        this.clock = config.getClock();
         this.currentTokens = config.getMaxRequests();
         this.lock = new ReentrantLock(true);
         this.notLimited = this.lock.newCondition();
-        this.lastRefillTime = System.nanoTime();
+        this.lastRefillTime = clock.nanoTime();
     }
 
     @Override
@@ -32,38 +38,115 @@ public class TokenBucketRateLimiter implements IRateLimiter {
     @Override
     public void acquire() throws InterruptedException {
         lock.lockInterruptibly();
+        RateLimiterThrottleEvent throttleEvent = null;
         try {
             while (!attemptAcquire()) {
                 // Calculate waiting time until next token
                 double timeUntilNextToken = (1 - currentTokens) / getRefillRate();
-                long waitTimeMillis = (long) (timeUntilNextToken * 1000);
+                long waitTimeMillis = (long) Math.ceil(timeUntilNextToken * 1000);
 
                 if (waitTimeMillis <= 0) {
                     continue;
                 }
-                System.out.println("Waiting for: " + waitTimeMillis + "ms");
-                if (!notLimited.await(waitTimeMillis, TimeUnit.MILLISECONDS)) {
-                    System.out.println("Await timeout, retrying...");
+                if (throttleEvent == null) {
+                    throttleEvent = RateLimiterThrottleEvent.start(this);
                 }
+                throttleEvent.onWait();
+                // Timing out just means the token should be there now, the loop retries either way
+                notLimited.await(waitTimeMillis, TimeUnit.MILLISECONDS);
             }
         } finally {
+            if (throttleEvent != null) {
+                throttleEvent.finish();
+            }
             lock.unlock();
         }
     }
 
+    @Override
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        this.lock.lock();
+        try {
+            return attemptAcquire(permits);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(int permits, long timeoutInMillis) throws InterruptedException {
+        long waitNanos = reserveWithin(permits, TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        if (waitNanos < 0) {
+            return false;
+        }
+        // Tokens are already ours, so wait for them without blocking other callers
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return true;
+    }
+
+    @Override
+    public long reserve(int permits) {
+        return reserveWithin(permits, Long.MAX_VALUE);
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync() {
+        return SharedTimer.completeAfter(reserve(1));
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync(long timeoutInMillis) {
+        long waitNanos = reserveWithin(1, TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        if (waitNanos < 0) {
+            return CompletableFuture.failedFuture(new TimeoutException("Permit not available within timeout"));
+        }
+        return SharedTimer.completeAfter(waitNanos);
+    }
+
+    // Debits the permits if they are available within the timeout and returns the wait, -1 otherwise
+    private long reserveWithin(int permits, long timeoutNanos) {
+        checkPermits(permits);
+        this.lock.lock();
+        try {
+            refillTokens();
+            long waitNanos = nanosUntilAvailable(permits);
+            if (waitNanos > timeoutNanos) {
+                return -1;
+            }
+            // The bucket is allowed to go negative, later callers pay off the debt by waiting longer
+            currentTokens -= permits;
+            return waitNanos;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
     private boolean attemptAcquire() {
+        return attemptAcquire(1);
+    }
+
+    private boolean attemptAcquire(int permits) {
         refillTokens();
-        // consume a token
-        if (currentTokens > 0) {
-            currentTokens--;
+        // consume the tokens
+        if (currentTokens >= permits) {
+            currentTokens -= permits;
             return true;
         }
-        // no tokens available, request cannot proceed
+        // not enough tokens available, request cannot proceed
         return false;
     }
 
+    private long nanosUntilAvailable(int permits) {
+        if (currentTokens >= permits) {
+            return 0;
+        }
+        double secondsUntilAvailable = (permits - currentTokens) / getRefillRate();
+        return (long) (secondsUntilAvailable * 1e9);
+    }
+
     private void refillTokens() {
-        long now = System.nanoTime();
+        long now = clock.nanoTime();
         double elapsedSeconds = (now - lastRefillTime) / 1e9; // Convert nanos to seconds
         // tokens are refilled on per-second basis
         double tokensToAdd = elapsedSeconds * getRefillRate();
@@ -72,6 +155,26 @@ public class TokenBucketRateLimiter implements IRateLimiter {
         lastRefillTime = now;
     }
 
+    // Hooks for CompositeRateLimiter, which calls them while holding the locks of all of its tiers
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    long peekWait(int permits) {
+        refillTokens();
+        return nanosUntilAvailable(permits);
+    }
+
+    void debit(int permits) {
+        currentTokens -= permits;
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+    }
+
     private double getRefillRate() {
         // Refill Rate = Max Requests / Time Window in Seconds
         // This tells how many tokens should be added per second, hence divided by 1000.0
@@ -0,0 +1,48 @@
+package ratelimiter.adaptive;
+
+/**
+ * Additive increase, multiplicative decrease.
+ * The limit grows by one for every healthy response and is cut by backoffRatio as soon as a request is
+ * dropped or slower than latencyThreshold. Simple and stable, but it needs a sensible latency threshold.
+ */
+public class AimdLimitAlgorithm implements ILimitAlgorithm {
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    public AimdLimitAlgorithm(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos,
+                              double backoffRatio) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Limit bounds must be positive and minLimit <= maxLimit");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+        this.initialLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+    }
+
+    @Override
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    @Override
+    public int update(int currentLimit, long rttNanos, int inFlight, boolean dropped) {
+        int newLimit;
+        if (dropped || rttNanos > latencyThresholdNanos) {
+            newLimit = (int) (currentLimit * backoffRatio);
+        } else if (inFlight * 2 >= currentLimit) {
+            // Only probe upwards when the limit is actually being used, otherwise it grows without bound
+            newLimit = currentLimit + 1;
+        } else {
+            newLimit = currentLimit;
+        }
+        return Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+}
@@ -0,0 +1,68 @@
+package ratelimiter.adaptive;
+
+/**
+ * Gradient based limit, needs no latency threshold.
+ * Compares a long-term latency average (the "no load" baseline) with the short-term average. While the two
+ * agree the limit grows by a queue allowance of sqrt(limit); once latency inflates the ratio drops below 1
+ * and the limit shrinks proportionally, never by more than half per update.
+ */
+public class GradientLimitAlgorithm implements ILimitAlgorithm {
+    // How much short-term latency may exceed the baseline before the limit starts shrinking
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double SHORT_RTT_ALPHA = 2.0 / (10 + 1);
+    private static final double LONG_RTT_ALPHA = 2.0 / (600 + 1);
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+
+    public GradientLimitAlgorithm(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Limit bounds must be positive and minLimit <= maxLimit");
+        }
+        this.initialLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = this.initialLimit;
+    }
+
+    @Override
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    @Override
+    public int update(int currentLimit, long rttNanos, int inFlight, boolean dropped) {
+        // A 0ns sample (coarse clocks, cached responses) would make both averages 0 and the ratio 0/0
+        rttNanos = Math.max(1, rttNanos);
+        shortRtt = shortRtt == 0 ? rttNanos : shortRtt + (rttNanos - shortRtt) * SHORT_RTT_ALPHA;
+        longRtt = longRtt == 0 ? rttNanos : longRtt + (rttNanos - longRtt) * LONG_RTT_ALPHA;
+
+        // After an incident the baseline is left inflated, pull it back so the limit can recover
+        double ratio = longRtt / shortRtt;
+        if (ratio > 2) {
+            longRtt *= 0.95;
+        }
+
+        // Latency says nothing about the limit while most of it is unused
+        if (!dropped && inFlight * 2 < estimatedLimit) {
+            return currentLimit;
+        }
+
+        // NaN fails every comparison and would otherwise slip through the min/max clamps below
+        if (Double.isNaN(ratio) || ratio <= 0) {
+            ratio = 1;
+        }
+        double gradient = dropped ? 0.5 : Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * ratio));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        if (!Double.isNaN(newLimit)) {
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        }
+        return (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,12 @@
+package ratelimiter.adaptive;
+
+/**
+ * Decides the next concurrency limit from the latency of a completed request.
+ * Called by AdaptiveRateLimiter while holding its lock, so implementations do not need to be thread-safe.
+ */
+public interface ILimitAlgorithm {
+    int getInitialLimit();
+
+    // dropped is true when the request failed or timed out, rttNanos is how long it was in flight
+    int update(int currentLimit, long rttNanos, int inFlight, boolean dropped);
+}
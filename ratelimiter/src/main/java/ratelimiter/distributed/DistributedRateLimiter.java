@@ -0,0 +1,315 @@
+package ratelimiter.distributed;
+
+import ratelimiter.IClock;
+import ratelimiter.IRateLimiter;
+import ratelimiter.RateLimiterConfig;
+import ratelimiter.SharedTimer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Node-local view of a cluster-wide limit.
+ * Permits are leased in batches from an IQuotaCoordinator and handed out locally with a single CAS, the
+ * coordinator is only contacted when the local lease runs dry or expires. Batch sizes follow the node's
+ * consumption rate: a lease drained early doubles the next one, a lease that expires with permits left over
+ * returns them and shrinks the next batch to what was actually used. Leftovers go back as soon as the lease
+ * expires (on a SharedTimer dispatch thread), not on the next refill, so an idle node doesn't sit on quota
+ * the rest of the cluster could use.
+ * <p>
+ * Async callers that find the lease dry queue up as debtors and are completed, in order, out of the permits
+ * the next leases actually grant. Nothing is promised against quota the coordinator hasn't handed out yet, so
+ * the node never lets through more than it leased.
+ * <p>
+ * config.getMaxRequests() is the global limit and caps a single batch. Lease times are compared against
+ * config.getClock(), which has to agree with the clock the coordinator stamps leases with.
+ */
+public class DistributedRateLimiter implements IRateLimiter {
+    private final String nodeId;
+    private final IQuotaCoordinator coordinator;
+    private final IClock clock;
+    private final int maxBatchSize;
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private volatile LocalLease current;
+    // Guarded by refillLock
+    private int batchSize;
+    // Async callers waiting for a permit, one each, served before the local lease gets any
+    private final Queue<CompletableFuture<Void>> debtors = new ArrayDeque<>();
+
+    public DistributedRateLimiter(String nodeId, RateLimiterConfig config, IQuotaCoordinator coordinator) {
+        this.nodeId = nodeId;
+        this.coordinator = coordinator;
+        this.clock = config.getClock();
+        this.maxBatchSize = Math.max(1, config.getMaxRequests());
+        this.batchSize = Math.max(1, config.getMaxRequests() / 100);
+        this.current = new LocalLease(new Lease(nodeId, 0, 0, 0, 0), 0, false);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    @Override
+    public void acquire() throws InterruptedException {
+        while (!tryAcquire(1)) {
+            sleepUntilLeaseExpires(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        LocalLease lease = current;
+        if (lease.tryTake(permits, clock.currentTimeMillis())) {
+            return true;
+        }
+        return refillAndTake(permits);
+    }
+
+    @Override
+    public boolean tryAcquire(int permits, long timeoutInMillis) throws InterruptedException {
+        long deadline = clock.currentTimeMillis() + timeoutInMillis;
+        while (!tryAcquire(permits)) {
+            if (clock.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            sleepUntilLeaseExpires(deadline);
+        }
+        return true;
+    }
+
+    /*
+      A reservation is only made against permits a lease has actually granted, so the wait is always 0.
+      Returns -1, booking nothing, when the local lease and the coordinator's remaining quota can't cover
+      the permits now: how long until the cluster frees up quota isn't something this node can know.
+     */
+    @Override
+    public long reserve(int permits) {
+        return tryAcquire(permits) ? 0 : -1;
+    }
+
+    @Override
+    public CompletableFuture<Void> acquireAsync() {
+        if (tryAcquire(1)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueueDebtor();
+    }
+
+    // The caller stays queued until the timeout, a permit granted after that goes to the next debtor
+    @Override
+    public CompletableFuture<Void> acquireAsync(long timeoutInMillis) {
+        if (tryAcquire(1)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueueDebtor().orTimeout(timeoutInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Gives the unused part of the current lease back to the coordinator and fails the queued async callers
+    public void shutdown() {
+        List<CompletableFuture<Void>> failed;
+        refillLock.lock();
+        try {
+            settle(current, clock.currentTimeMillis());
+            failed = new ArrayList<>(debtors);
+            debtors.clear();
+        } finally {
+            refillLock.unlock();
+        }
+        for (CompletableFuture<Void> debtor : failed) {
+            debtor.completeExceptionally(new IllegalStateException("Trying to access rate limiter, but is shutdown"));
+        }
+    }
+
+    public int getBatchSize() {
+        refillLock.lock();
+        try {
+            return batchSize;
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private boolean refillAndTake(int permits) {
+        List<CompletableFuture<Void>> repaid;
+        boolean taken;
+        refillLock.lock();
+        try {
+            long currentTime = clock.currentTimeMillis();
+            LocalLease lease = current;
+            // Another thread may have refilled while we were waiting for the lock
+            if (lease.tryTake(permits, currentTime)) {
+                return true;
+            }
+            // The cluster is out of quota, don't ask again before this lease is over
+            if (lease.globallyExhausted && !lease.isExpired(currentTime)) {
+                return false;
+            }
+            repaid = refill(Math.max(batchSize, permits), currentTime);
+            taken = current.tryTake(permits, currentTime);
+        } finally {
+            refillLock.unlock();
+        }
+        completeAll(repaid);
+        return taken;
+    }
+
+    private CompletableFuture<Void> enqueueDebtor() {
+        CompletableFuture<Void> debtor = new CompletableFuture<>();
+        List<CompletableFuture<Void>> repaid;
+        refillLock.lock();
+        try {
+            long currentTime = clock.currentTimeMillis();
+            LocalLease lease = current;
+            if (lease.tryTake(1, currentTime)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            debtors.add(debtor);
+            // Out of quota, the expiry of this lease asks again
+            if (lease.globallyExhausted && !lease.isExpired(currentTime)) {
+                return debtor;
+            }
+            repaid = refill(0, currentTime);
+        } finally {
+            refillLock.unlock();
+        }
+        completeAll(repaid);
+        return debtor;
+    }
+
+    private void onLeaseExpired(LocalLease lease) {
+        List<CompletableFuture<Void>> repaid = List.of();
+        refillLock.lock();
+        try {
+            long currentTime = clock.currentTimeMillis();
+            settle(lease, currentTime);
+            // Nobody else will ask for a lease on behalf of the queued async callers
+            debtors.removeIf(CompletableFuture::isDone);
+            if (lease == current && !debtors.isEmpty()) {
+                repaid = refill(0, currentTime);
+            }
+        } finally {
+            refillLock.unlock();
+        }
+        completeAll(repaid);
+    }
+
+    /*
+      Replaces the current lease with a fresh one covering the wanted permits plus one per queued debtor.
+      Debtors are paid first, in order, the rest becomes the local lease. Returns the debtors to complete,
+      which the caller does after releasing refillLock. Caller holds refillLock.
+     */
+    private List<CompletableFuture<Void>> refill(int wanted, long currentTime) {
+        settle(current, currentTime);
+        // Timed out or cancelled callers don't need a permit any more
+        debtors.removeIf(CompletableFuture::isDone);
+
+        int requested = wanted + debtors.size();
+        Lease granted = coordinator.lease(nodeId, requested);
+        List<CompletableFuture<Void>> repaid = new ArrayList<>();
+        while (repaid.size() < granted.getPermits() && !debtors.isEmpty()) {
+            repaid.add(debtors.poll());
+        }
+        LocalLease refilled = new LocalLease(granted, granted.getPermits() - repaid.size(),
+                granted.getPermits() < requested);
+        current = refilled;
+        // Also for an empty lease, its expiry is when queued debtors ask the coordinator again
+        long untilExpiry = granted.getExpiresAtMillis() - currentTime;
+        SharedTimer.completeAfter(TimeUnit.MILLISECONDS.toNanos(untilExpiry))
+                .thenRun(() -> onLeaseExpired(refilled));
+        return repaid;
+    }
+
+    /*
+      Runs outside refillLock, so the callers' continuations can't hold it up. A debtor that timed out since
+      it was paid wastes its permit, the node then lets through less than it leased, never more.
+     */
+    private void completeAll(List<CompletableFuture<Void>> repaid) {
+        for (CompletableFuture<Void> debtor : repaid) {
+            debtor.complete(null);
+        }
+    }
+
+    // Gives what is left of a lease back to the coordinator, once per lease. Caller holds refillLock
+    private void settle(LocalLease lease, long currentTime) {
+        if (lease.settled) {
+            return;
+        }
+        lease.settled = true;
+        int leftover = lease.drain();
+        resizeBatch(lease, leftover, currentTime);
+        if (leftover > 0) {
+            coordinator.release(lease.source, leftover);
+        }
+    }
+
+    // Projects the consumption of the finished lease over a full lease period, growing at most 2x per step
+    private void resizeBatch(LocalLease lease, int leftover, long currentTime) {
+        long leasePeriod = lease.source.getExpiresAtMillis() - lease.source.getGrantedAtMillis();
+        if (lease.source.getPermits() == 0 || leasePeriod <= 0) {
+            return;
+        }
+        long consumed = lease.initialPermits - leftover;
+        long elapsed = Math.max(1, Math.min(currentTime, lease.source.getExpiresAtMillis())
+                - lease.source.getGrantedAtMillis());
+        long projected = consumed * leasePeriod / elapsed;
+        batchSize = (int) Math.max(1, Math.min(Math.min(maxBatchSize, 2L * batchSize), projected));
+    }
+
+    private void sleepUntilLeaseExpires(long deadline) throws InterruptedException {
+        long wakeUp = Math.min(deadline, current.source.getExpiresAtMillis());
+        TimeUnit.MILLISECONDS.sleep(Math.max(1, wakeUp - clock.currentTimeMillis()));
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+    }
+
+    private static class LocalLease {
+        private final Lease source;
+        private final int initialPermits;
+        // Coordinator granted less than we asked for
+        private final boolean globallyExhausted;
+        private final AtomicInteger remaining;
+        // Leftovers already returned, guarded by refillLock
+        private boolean settled;
+
+        private LocalLease(Lease source, int permits, boolean globallyExhausted) {
+            this.source = source;
+            this.initialPermits = permits;
+            this.globallyExhausted = globallyExhausted;
+            this.remaining = new AtomicInteger(permits);
+        }
+
+        private boolean tryTake(int permits, long currentTime) {
+            if (isExpired(currentTime)) {
+                return false;
+            }
+            int available;
+            do {
+                available = remaining.get();
+                if (available < permits) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(available, available - permits));
+            return true;
+        }
+
+        private boolean isExpired(long currentTime) {
+            return currentTime >= source.getExpiresAtMillis();
+        }
+
+        private int drain() {
+            return remaining.getAndSet(0);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ratelimiter.distributed;
+
+/**
+ * Owns the global budget that the nodes lease permits from.
+ * Implementations may sit behind a network call, nodes only talk to them when their local lease runs out.
+ */
+public interface IQuotaCoordinator {
+    // Grants up to the requested permits, fewer (possibly 0) when the global budget is running out
+    Lease lease(String nodeId, int permits);
+
+    // Hands back permits of a lease the node did not use, ignored once the lease's window is over
+    void release(Lease lease, int unusedPermits);
+}
@@ -0,0 +1,92 @@
+package ratelimiter.distributed;
+
+import ratelimiter.IClock;
+import ratelimiter.RateLimiterConfig;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinator living in the same process as its nodes, for tests and single-host setups.
+ * The global budget is maxRequests per fixed window. Leases last leaseTtlInMillis (at most until the window
+ * ends). Nodes hand back what they didn't use when their lease expires, so quota a node over-leased flows back
+ * and can be leased by others within the same window. A node that dies holding a lease doesn't return it,
+ * those permits only come back with the next window.
+ * <p>
+ * Windows and lease times are read from config.getClock(), nodes must use the same clock.
+ */
+public class InProcessQuotaCoordinator implements IQuotaCoordinator {
+    private final RateLimiterConfig config;
+    private final IClock clock;
+    private final long leaseTtlInMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long windowStartTime;
+    private int leasedCount;
+
+    public InProcessQuotaCoordinator(RateLimiterConfig config) {
+        this(config, Math.max(1, config.getWindowSizeInMillis() / 10));
+    }
+
+    public InProcessQuotaCoordinator(RateLimiterConfig config, long leaseTtlInMillis) {
+        if (leaseTtlInMillis <= 0) {
+            throw new IllegalArgumentException("Lease TTL must be positive");
+        }
+        this.config = config;
+        this.clock = config.getClock();
+        this.leaseTtlInMillis = leaseTtlInMillis;
+        this.windowStartTime = clock.currentTimeMillis();
+    }
+
+    @Override
+    public Lease lease(String nodeId, int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+        lock.lock();
+        try {
+            long currentTime = clock.currentTimeMillis();
+            rollWindow(currentTime);
+            int granted = Math.min(permits, config.getMaxRequests() - leasedCount);
+            leasedCount += granted;
+            long windowEnd = windowStartTime + config.getWindowSizeInMillis();
+            return new Lease(nodeId, granted, windowStartTime, currentTime,
+                    Math.min(windowEnd, currentTime + leaseTtlInMillis));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(Lease lease, int unusedPermits) {
+        if (unusedPermits <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            rollWindow(clock.currentTimeMillis());
+            if (lease.getWindowStartMillis() == windowStartTime) {
+                leasedCount = Math.max(0, leasedCount - Math.min(unusedPermits, lease.getPermits()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getAvailablePermits() {
+        lock.lock();
+        try {
+            rollWindow(clock.currentTimeMillis());
+            return config.getMaxRequests() - leasedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rollWindow(long currentTime) {
+        long elapsed = currentTime - windowStartTime;
+        if (elapsed >= config.getWindowSizeInMillis()) {
+            // Aligned windows, so every node agrees on which window a lease belongs to
+            windowStartTime += elapsed - elapsed % config.getWindowSizeInMillis();
+            leasedCount = 0;
+        }
+    }
+}
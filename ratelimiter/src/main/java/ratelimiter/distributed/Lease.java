@@ -0,0 +1,39 @@
+package ratelimiter.distributed;
+
+// A batch of global permits handed to one node, usable until expiresAtMillis
+public class Lease {
+    private final String nodeId;
+    private final int permits;
+    private final long windowStartMillis;
+    private final long grantedAtMillis;
+    private final long expiresAtMillis;
+
+    public Lease(String nodeId, int permits, long windowStartMillis, long grantedAtMillis, long expiresAtMillis) {
+        this.nodeId = nodeId;
+        this.permits = permits;
+        this.windowStartMillis = windowStartMillis;
+        this.grantedAtMillis = grantedAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    // Identifies the global window the permits were taken from, returned permits only count in that window
+    public long getWindowStartMillis() {
+        return windowStartMillis;
+    }
+
+    public long getGrantedAtMillis() {
+        return grantedAtMillis;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+}
@@ -8,6 +8,8 @@ public class RateLimiterFactory {
             case FIXED_WINDOW -> new FixedWindowRateLimiter(config);
             case SLIDING_WINDOW -> new SlidingWindowRateLimiter(config);
             case TOKEN_BUCKET -> new TokenBucketRateLimiter(config);
+            case LEAKY_BUCKET -> new LeakyBucketRateLimiter(config);
+            case ADAPTIVE -> new AdaptiveRateLimiter(config);
             default -> throw new IllegalArgumentException("Invalid type of rate limiter");
         };
     }
@@ -0,0 +1,62 @@
+package ratelimiter.distributed;
+
+import org.junit.jupiter.api.Test;
+import ratelimiter.RateLimiterConfig;
+import ratelimiter.RateLimiterType;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class DistributedRateLimiterTest {
+    private static final int GLOBAL_LIMIT = 10;
+    private static final long WINDOW_MILLIS = 1000;
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+    private final RateLimiterConfig config = new RateLimiterConfig.Builder()
+            .withRateLimiterType(RateLimiterType.TOKEN_BUCKET)
+            .withMaxRequests(GLOBAL_LIMIT)
+            .withWindowSizeInMillis(WINDOW_MILLIS)
+            .withClock(nanos::get)
+            .build();
+    private final InProcessQuotaCoordinator coordinator = new InProcessQuotaCoordinator(config, 100);
+
+    @Test
+    void nodesNeverAdmitMoreThanTheGlobalLimit() {
+        DistributedRateLimiter first = new DistributedRateLimiter("first", config, coordinator);
+        DistributedRateLimiter second = new DistributedRateLimiter("second", config, coordinator);
+
+        int admitted = 0;
+        for (int i = 0; i < 3 * GLOBAL_LIMIT; i++) {
+            DistributedRateLimiter node = i % 2 == 0 ? first : second;
+            if (node.tryAcquire() || node.reserve(1) == 0) {
+                admitted++;
+            }
+        }
+        assertEquals(GLOBAL_LIMIT, admitted);
+        assertEquals(-1, first.reserve(1));
+    }
+
+    @Test
+    void asyncCallerIsServedFromTheNextWindowsLease() throws Exception {
+        DistributedRateLimiter node = new DistributedRateLimiter("node", config, coordinator);
+        while (node.tryAcquire()) {
+            // Drain the global quota
+        }
+
+        CompletableFuture<Void> permit = node.acquireAsync();
+        // Lease expiries keep asking, but the window is still spent
+        Thread.sleep(300);
+        assertFalse(permit.isDone());
+        assertEquals(0, coordinator.getAvailablePermits());
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS));
+        permit.get(5, TimeUnit.SECONDS);
+        node.shutdown();
+        // The debtor's permit is the only one left leased
+        assertEquals(GLOBAL_LIMIT - 1, coordinator.getAvailablePermits());
+    }
+}
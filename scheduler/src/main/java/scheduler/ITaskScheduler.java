@@ -0,0 +1,20 @@
+package scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+public interface ITaskScheduler {
+    ScheduledTask schedule(Runnable task, long delayInMillis);
+
+    ScheduledTask schedule(Runnable task, long delay, TimeUnit unit);
+
+    // Runs every period measured from the first start, a run that takes too long delays the next one
+    ScheduledTask scheduleAtFixedRate(Runnable task, long initialDelayInMillis, long periodInMillis);
+
+    // Runs again delayInMillis after the previous run finished
+    ScheduledTask scheduleWithFixedDelay(Runnable task, long initialDelayInMillis, long delayInMillis);
+
+    // Stops the tick thread, tasks that haven't fired yet never will
+    void shutdown();
+
+    boolean isShutdown();
+}
@@ -0,0 +1,61 @@
+package scheduler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Main {
+    public static void main(String[] args) throws InterruptedException {
+        // The fixed delay task below sleeps, every task gets a virtual thread of its own
+        TimingWheelScheduler scheduler = new TimingWheelScheduler.Builder()
+                .withVirtualThreads()
+                .build();
+
+        long start = System.nanoTime();
+        CountDownLatch fired = new CountDownLatch(1);
+        scheduler.schedule(() -> {
+            System.out.printf("One-shot fired after %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            fired.countDown();
+        }, 100);
+        fired.await();
+
+        AtomicInteger fixedRate = new AtomicInteger();
+        AtomicInteger fixedDelay = new AtomicInteger();
+        ScheduledTask rateTask = scheduler.scheduleAtFixedRate(fixedRate::incrementAndGet, 0, 10);
+        // Takes 10ms per run, so it runs about half as often as the fixed rate task
+        ScheduledTask delayTask = scheduler.scheduleWithFixedDelay(() -> {
+            fixedDelay.incrementAndGet();
+            sleepQuietly(10);
+        }, 0, 10);
+        Thread.sleep(500);
+        rateTask.cancel();
+        delayTask.cancel();
+        System.out.println("Fixed rate runs in 500 ms: " + fixedRate.get() + ", fixed delay runs: " + fixedDelay.get());
+
+        // Per-request deadlines: a million timeouts, almost all cancelled before they fire
+        AtomicInteger timedOut = new AtomicInteger();
+        ScheduledTask[] deadlines = new ScheduledTask[1_000_000];
+        long scheduleStart = System.nanoTime();
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = scheduler.schedule(timedOut::incrementAndGet, 1000 + i % 1000);
+        }
+        for (int i = 0; i < deadlines.length; i++) {
+            if (i % 1000 != 0) {
+                deadlines[i].cancel();
+            }
+        }
+        System.out.printf("Scheduled and cancelled %d timeouts in %d ms%n",
+                deadlines.length, (System.nanoTime() - scheduleStart) / 1_000_000);
+        Thread.sleep(2500);
+        System.out.println("Timeouts that fired: " + timedOut.get());
+
+        scheduler.shutdown();
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
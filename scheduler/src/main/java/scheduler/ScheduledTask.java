@@ -0,0 +1,66 @@
+package scheduler;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Handle for a scheduled task, and at the same time its entry in the timing wheel.
+ * Kept to a single object per task (the state is a field updater, not an AtomicInteger) since a scheduler
+ * can hold millions of them, e.g. one deadline per in-flight request.
+ */
+public class ScheduledTask {
+    static final int SCHEDULED = 0;
+    static final int DONE = 1;
+    static final int CANCELLED = 2;
+
+    private static final AtomicIntegerFieldUpdater<ScheduledTask> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(ScheduledTask.class, "state");
+
+    private final TimingWheelScheduler scheduler;
+    final Runnable task;
+    // 0 for a one-shot task, positive for fixed rate, negative for fixed delay
+    final long periodNanos;
+    // Written before the task is handed to the tick thread through a concurrent queue
+    long deadlineNanos;
+    private volatile int state;
+
+    // Owned by the tick thread
+    TaskBucket bucket;
+    ScheduledTask prev;
+    ScheduledTask next;
+
+    ScheduledTask(TimingWheelScheduler scheduler, Runnable task, long deadlineNanos, long periodNanos) {
+        this.scheduler = scheduler;
+        this.task = task;
+        this.deadlineNanos = deadlineNanos;
+        this.periodNanos = periodNanos;
+    }
+
+    /*
+      O(1): only flips the state, the tick thread unlinks the task from its bucket on its next tick.
+      Returns false if the task already ran (one-shot) or was cancelled.
+     */
+    public boolean cancel() {
+        if (STATE.compareAndSet(this, SCHEDULED, CANCELLED)) {
+            scheduler.onCancel(this);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    // A periodic task is only done once cancelled or after a run threw
+    public boolean isDone() {
+        return state != SCHEDULED;
+    }
+
+    boolean isScheduled() {
+        return state == SCHEDULED;
+    }
+
+    boolean markDone() {
+        return STATE.compareAndSet(this, SCHEDULED, DONE);
+    }
+}
@@ -0,0 +1,47 @@
+package scheduler;
+
+// One slot of a wheel, an intrusive FIFO list of tasks. Only used by the tick thread
+class TaskBucket {
+    private ScheduledTask head;
+    private ScheduledTask tail;
+
+    void add(ScheduledTask task) {
+        task.bucket = this;
+        task.prev = tail;
+        task.next = null;
+        if (tail == null) {
+            head = task;
+        } else {
+            tail.next = task;
+        }
+        tail = task;
+    }
+
+    void remove(ScheduledTask task) {
+        if (task.prev == null) {
+            head = task.next;
+        } else {
+            task.prev.next = task.next;
+        }
+        if (task.next == null) {
+            tail = task.prev;
+        } else {
+            task.next.prev = task.prev;
+        }
+        unlink(task);
+    }
+
+    // Detaches the whole list, the caller walks it through ScheduledTask.next
+    ScheduledTask clear() {
+        ScheduledTask first = head;
+        head = null;
+        tail = null;
+        return first;
+    }
+
+    static void unlink(ScheduledTask task) {
+        task.bucket = null;
+        task.prev = null;
+        task.next = null;
+    }
+}
@@ -0,0 +1,305 @@
+package scheduler;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Task scheduler on a hierarchical hashed timing wheel.
+ * <p>
+ * Six wheels of 64 buckets each: level 0 has one bucket per tick, level 1 one per 64 ticks, and so on, which
+ * covers 2^36 ticks (about two years with 1ms ticks). A task goes into the bucket for its deadline on the
+ * lowest level that reaches that far. When a higher level bucket comes due it is cascaded, i.e. its tasks are
+ * redistributed over the lower levels, until they land in level 0 and fire on their exact tick.
+ * <p>
+ * A single tick thread owns the wheels, so they need no locks. Other threads hand new tasks over through a
+ * concurrent queue, and cancel() only flips a flag and queues the task for unlinking. Schedule and cancel are
+ * O(1), unlike a DelayQueue or ScheduledThreadPoolExecutor whose heap is O(log n) and shared under one lock.
+ * The price is precision: a task fires up to one tick late, never early.
+ * <p>
+ * Due tasks are handed to the executor. The default runs them on the tick thread, which is the cheapest
+ * option for tiny callbacks like completing a future, anything slower must get its own executor.
+ * withVirtualThreads() runs every task on a virtual thread of its own, a good fit for blocking work.
+ */
+public class TimingWheelScheduler implements ITaskScheduler {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 6;
+    private static final long MAX_TICKS = 1L << (WHEEL_BITS * LEVELS);
+    // Keeps a burst of new tasks from stalling the tick, the rest are picked up on the next ones
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Executor executor;
+    // Created by withVirtualThreads(), so ours to shut down
+    private final ExecutorService ownedExecutor;
+    private final TaskBucket[][] wheels = new TaskBucket[LEVELS][WHEEL_SIZE];
+    private final ConcurrentLinkedQueue<ScheduledTask> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<ScheduledTask> cancelledTasks = new ConcurrentLinkedQueue<>();
+    private final long startNanos;
+    private final Thread tickThread;
+    private volatile boolean isShutdown;
+    // Owned by the tick thread, the next tick to process
+    private long currentTick;
+
+    private TimingWheelScheduler(Builder builder) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(builder.tickMillis);
+        this.ownedExecutor = builder.virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.executor = ownedExecutor != null ? ownedExecutor : builder.executor;
+        for (TaskBucket[] wheel : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = new TaskBucket();
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.tickThread = new Thread(this::run, builder.threadName);
+        // Never keeps the JVM alive, pending timeouts are not a reason to stay up
+        tickThread.setDaemon(true);
+        tickThread.start();
+    }
+
+    @Override
+    public ScheduledTask schedule(Runnable task, long delayInMillis) {
+        return schedule(task, delayInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ScheduledTask schedule(Runnable task, long delay, TimeUnit unit) {
+        return submit(task, unit.toNanos(delay), 0);
+    }
+
+    @Override
+    public ScheduledTask scheduleAtFixedRate(Runnable task, long initialDelayInMillis, long periodInMillis) {
+        checkPeriod(periodInMillis);
+        return submit(task, TimeUnit.MILLISECONDS.toNanos(initialDelayInMillis),
+                TimeUnit.MILLISECONDS.toNanos(periodInMillis));
+    }
+
+    @Override
+    public ScheduledTask scheduleWithFixedDelay(Runnable task, long initialDelayInMillis, long delayInMillis) {
+        checkPeriod(delayInMillis);
+        return submit(task, TimeUnit.MILLISECONDS.toNanos(initialDelayInMillis),
+                -TimeUnit.MILLISECONDS.toNanos(delayInMillis));
+    }
+
+    @Override
+    public void shutdown() {
+        isShutdown = true;
+        LockSupport.unpark(tickThread);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return isShutdown;
+    }
+
+    void onCancel(ScheduledTask task) {
+        cancelledTasks.add(task);
+    }
+
+    private ScheduledTask submit(Runnable task, long delayNanos, long periodNanos) {
+        if (task == null) {
+            throw new NullPointerException("Cannot schedule null task");
+        }
+        if (isShutdown) {
+            throw new RejectedExecutionException("Scheduler is shutdown");
+        }
+        ScheduledTask scheduled = new ScheduledTask(this, task, System.nanoTime() + Math.max(0, delayNanos),
+                periodNanos);
+        pendingTasks.add(scheduled);
+        return scheduled;
+    }
+
+    // Processes every tick whose time has come, catching up if the thread woke up late
+    private void run() {
+        while (!isShutdown) {
+            long tick = currentTick;
+            long waitNanos = startNanos + tick * tickNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(this, waitNanos);
+                continue;
+            }
+            removeCancelled();
+            transferPending(tick);
+            cascade(tick);
+            expire(wheels[0][(int) (tick & WHEEL_MASK)]);
+            currentTick = tick + 1;
+        }
+        // Only now, after the last dispatch, so nothing is handed to an executor that already shut down.
+        // Tasks already running on it finish
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private void removeCancelled() {
+        ScheduledTask task;
+        while ((task = cancelledTasks.poll()) != null) {
+            // Still in the pending queue or running, transferPending and reschedule skip it
+            if (task.bucket != null) {
+                task.bucket.remove(task);
+            }
+        }
+    }
+
+    private void transferPending(long tick) {
+        ScheduledTask task;
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK && (task = pendingTasks.poll()) != null; i++) {
+            if (task.isScheduled()) {
+                insert(task, tick);
+            }
+        }
+    }
+
+    /*
+      The level is picked by how far away the deadline is, the bucket by the deadline's own bits, so a
+      bucket on level n comes due (and is cascaded) exactly when the ticks below it roll over.
+      Deadlines beyond the last level are parked in its furthest bucket and re-inserted from there.
+     */
+    private void insert(ScheduledTask task, long tick) {
+        long deadlineTick = Math.max(tick, ticksFor(task.deadlineNanos));
+        long delta = deadlineTick - tick;
+        if (delta >= MAX_TICKS) {
+            deadlineTick = tick + MAX_TICKS - 1;
+            delta = MAX_TICKS - 1;
+        }
+        int level = 0;
+        while (delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int index = (int) ((deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        wheels[level][index].add(task);
+    }
+
+    // Rounded up, a task never fires before its deadline
+    private long ticksFor(long deadlineNanos) {
+        long elapsed = deadlineNanos - startNanos;
+        return elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+    }
+
+    private void cascade(long tick) {
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = WHEEL_BITS * level;
+            if ((tick & ((1L << shift) - 1)) != 0) {
+                return;
+            }
+            ScheduledTask task = wheels[level][(int) ((tick >>> shift) & WHEEL_MASK)].clear();
+            while (task != null) {
+                ScheduledTask next = task.next;
+                TaskBucket.unlink(task);
+                insert(task, tick);
+                task = next;
+            }
+        }
+    }
+
+    // Every task in the current level 0 bucket is due on exactly this tick
+    private void expire(TaskBucket bucket) {
+        ScheduledTask task = bucket.clear();
+        while (task != null) {
+            ScheduledTask next = task.next;
+            TaskBucket.unlink(task);
+            dispatch(task);
+            task = next;
+        }
+    }
+
+    private void dispatch(ScheduledTask task) {
+        // A one-shot task is done once it is handed out, so a late cancel() correctly returns false
+        if (task.periodNanos == 0 ? !task.markDone() : !task.isScheduled()) {
+            return;
+        }
+        try {
+            executor.execute(() -> runTask(task));
+        } catch (RejectedExecutionException e) {
+            task.markDone();
+            report(e);
+        }
+    }
+
+    /*
+      Periodic tasks are re-queued after the run, so two runs of the same task never overlap.
+      A periodic task that throws is not run again.
+     */
+    private void runTask(ScheduledTask task) {
+        try {
+            task.task.run();
+        } catch (Throwable e) {
+            task.markDone();
+            report(e);
+            return;
+        }
+        if (task.periodNanos != 0 && task.isScheduled()) {
+            if (isShutdown) {
+                task.markDone();
+                return;
+            }
+            task.deadlineNanos = task.periodNanos > 0
+                    ? task.deadlineNanos + task.periodNanos
+                    : System.nanoTime() - task.periodNanos;
+            pendingTasks.add(task);
+        }
+    }
+
+    private void report(Throwable e) {
+        Thread current = Thread.currentThread();
+        current.getUncaughtExceptionHandler().uncaughtException(current, e);
+    }
+
+    private void checkPeriod(long periodInMillis) {
+        if (periodInMillis <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+    }
+
+    public static class Builder {
+        private long tickMillis = 1;
+        private Executor executor = Runnable::run;
+        private boolean virtualThreads;
+        private String threadName = "timing-wheel";
+
+        public Builder withTickMillis(long tickMillis) {
+            this.tickMillis = tickMillis;
+            return this;
+        }
+
+        public Builder withExecutor(Executor executor) {
+            this.executor = executor;
+            this.virtualThreads = false;
+            return this;
+        }
+
+        // Runs each due task on a new virtual thread, the scheduler shuts that executor down with itself
+        public Builder withVirtualThreads() {
+            this.virtualThreads = true;
+            return this;
+        }
+
+        public Builder withThreadName(String threadName) {
+            this.threadName = threadName;
+            return this;
+        }
+
+        public TimingWheelScheduler build() {
+            validate();
+            return new TimingWheelScheduler(this);
+        }
+
+        private void validate() {
+            if (tickMillis <= 0) {
+                throw new IllegalArgumentException("Tick must be positive");
+            }
+            if (executor == null && !virtualThreads) {
+                throw new IllegalArgumentException("Executor is required");
+            }
+            if (threadName == null) {
+                throw new IllegalArgumentException("Thread name is required");
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package scheduler.benchmark;
+
+import scheduler.ScheduledTask;
+import scheduler.TimingWheelScheduler;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request deadline workload, run with
+ *   java scheduler.benchmark.SchedulerBenchmark
+ * <p>
+ * Every thread schedules timeouts 1 to 60 seconds out and cancels each one later, as a request that completes
+ * in time would. Each new timeout replaces the thread's oldest outstanding one, so bench.pending of them are
+ * waiting at any time, which is what makes a heap (ScheduledThreadPoolExecutor) pay O(log n) per operation
+ * under its lock, while the timing wheel stays O(1). Nothing ever fires, only schedule and cancel are measured.
+ * <p>
+ * System properties: bench.pending (default 1,000,000 waiting timeouts in total), bench.operations
+ * (default 2,000,000 schedule/cancel pairs per run), bench.threads (default 1,4).
+ */
+public class SchedulerBenchmark {
+    private interface Timer {
+        Object schedule(Runnable task, long delayInMillis);
+
+        void cancel(Object handle);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int pending = Integer.getInteger("bench.pending", 1_000_000);
+        int operations = Integer.getInteger("bench.operations", 2_000_000);
+        int[] threadCounts = Arrays.stream(System.getProperty("bench.threads", "1,4").split(","))
+                .mapToInt(count -> Integer.parseInt(count.trim()))
+                .toArray();
+
+        System.out.printf("%-28s %7s %14s%n", "scheduler", "threads", "pairs/s");
+        for (int threads : threadCounts) {
+            // First round of each is warmup
+            for (int round = 0; round < 2; round++) {
+                TimingWheelScheduler wheel = new TimingWheelScheduler.Builder().build();
+                double wheelRate = run(new Timer() {
+                    @Override
+                    public Object schedule(Runnable task, long delayInMillis) {
+                        return wheel.schedule(task, delayInMillis);
+                    }
+
+                    @Override
+                    public void cancel(Object handle) {
+                        ((ScheduledTask) handle).cancel();
+                    }
+                }, threads, pending, operations);
+                wheel.shutdown();
+
+                ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+                executor.setRemoveOnCancelPolicy(true);
+                double executorRate = run(new Timer() {
+                    @Override
+                    public Object schedule(Runnable task, long delayInMillis) {
+                        return executor.schedule(task, delayInMillis, TimeUnit.MILLISECONDS);
+                    }
+
+                    @Override
+                    public void cancel(Object handle) {
+                        ((ScheduledFuture<?>) handle).cancel(false);
+                    }
+                }, threads, pending, operations);
+                executor.shutdownNow();
+
+                if (round == 1) {
+                    System.out.printf("%-28s %7d %14.0f%n", "TimingWheelScheduler", threads, wheelRate);
+                    System.out.printf("%-28s %7d %14.0f%n", "ScheduledThreadPoolExecutor", threads, executorRate);
+                }
+            }
+        }
+    }
+
+    private static double run(Timer timer, int threads, int pending, int operations) throws InterruptedException {
+        int pendingPerThread = Math.max(1, pending / threads);
+        int operationsPerThread = operations / threads;
+        Runnable noop = () -> {
+        };
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                // Ring of outstanding timeouts, the oldest is cancelled to make room for the next one
+                Object[] outstanding = new Object[pendingPerThread];
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int op = 0; op < operationsPerThread; op++) {
+                    int slot = op % pendingPerThread;
+                    if (outstanding[slot] != null) {
+                        timer.cancel(outstanding[slot]);
+                    }
+                    outstanding[slot] = timer.schedule(noop, 1_000 + random.nextInt(59_000));
+                }
+                for (Object handle : outstanding) {
+                    if (handle != null) {
+                        timer.cancel(handle);
+                    }
+                }
+                done.countDown();
+            }, "bench-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        return (double) operationsPerThread * threads / (elapsedNanos / 1e9);
+    }
+}
@@ -0,0 +1,24 @@
+package semaphore;
+
+/**
+ * Counting semaphore. Bounds how many callers hold a resource at once, where IRateLimiter bounds how often
+ * it is used, the two are commonly stacked (e.g. at most 50 requests in flight and 1000/s).
+ */
+public interface ISemaphore {
+    void acquire() throws InterruptedException;
+
+    // Acquires all permits at once, waiting until that many are available
+    void acquire(int permits) throws InterruptedException;
+
+    boolean tryAcquire();
+
+    boolean tryAcquire(int permits);
+
+    boolean tryAcquire(int permits, long timeoutInMillis) throws InterruptedException;
+
+    void release();
+
+    void release(int permits);
+
+    int availablePermits();
+}
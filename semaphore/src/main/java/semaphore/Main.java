@@ -0,0 +1,59 @@
+package semaphore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Main {
+    public static void main(String[] args) throws InterruptedException {
+        ScalableSemaphore semaphore = new ScalableSemaphore.Builder()
+                .withPermits(3)
+                .build();
+
+        // Eight workers, at most three of them inside at any time
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        Thread[] workers = new Thread[8];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    semaphore.acquire();
+                    try {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        Thread.sleep(50);
+                        inside.decrementAndGet();
+                    } finally {
+                        semaphore.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "worker-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.println("Max workers inside at once: " + maxInside.get());
+
+        // Batch permits are all or nothing, and a queued batch isn't overtaken by single permits
+        semaphore.acquire(2);
+        System.out.println("tryAcquire(2) with 1 free: " + semaphore.tryAcquire(2));
+        System.out.println("tryAcquire(2, 100ms) with 1 free: " + semaphore.tryAcquire(2, 100));
+        Thread batch = new Thread(() -> {
+            try {
+                semaphore.acquire(3);
+                System.out.println("Batch of 3 acquired");
+                semaphore.release(3);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        batch.start();
+        while (semaphore.getQueueLength() == 0) {
+            Thread.sleep(1);
+        }
+        System.out.println("tryAcquire() while the batch is queued: " + semaphore.tryAcquire());
+        semaphore.release(2);
+        batch.join();
+        System.out.println("Available permits: " + semaphore.availablePermits());
+    }
+}
@@ -0,0 +1,292 @@
+package semaphore;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Semaphore with a lock-free fast path.
+ * While nobody is waiting, acquire and release are a single CAS on the permit counter. Only a caller that
+ * can't get its permits takes the lock, joins a FIFO wait queue and parks. Releases hand permits to the
+ * queue in order, and new arrivals don't barge ahead of it, so a waiter for many permits is not starved by
+ * a stream of small requests.
+ * <p>
+ * With stripes > 1 the permits are spread over several counters on separate cache lines. Each thread
+ * acquires and releases on its own stripe first, so on many cores the CAS traffic doesn't converge on one
+ * line. A request that no single stripe can satisfy gathers permits across stripes under the lock.
+ */
+public class ScalableSemaphore implements ISemaphore {
+    // Longs per stripe, keeps neighbouring counters on separate cache lines
+    private static final int PADDING = 8;
+
+    private final int stripeMask;
+    private final AtomicLongArray permits;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    // Written under lock, read by the fast path to keep new arrivals from barging
+    private volatile int waiterCount;
+
+    private ScalableSemaphore(Builder builder) {
+        this.stripeMask = builder.stripes - 1;
+        this.permits = new AtomicLongArray(builder.stripes * PADDING);
+        for (int stripe = 0; stripe < builder.stripes; stripe++) {
+            int share = builder.permits / builder.stripes + (stripe < builder.permits % builder.stripes ? 1 : 0);
+            permits.set(stripe * PADDING, share);
+        }
+    }
+
+    @Override
+    public void acquire() throws InterruptedException {
+        acquire(1);
+    }
+
+    @Override
+    public void acquire(int permits) throws InterruptedException {
+        checkPermits(permits);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (!takeFast(permits)) {
+            awaitPermits(permits, false, 0);
+        }
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    // Fails while others are queued, even if enough permits are free
+    @Override
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        return takeFast(permits);
+    }
+
+    @Override
+    public boolean tryAcquire(int permits, long timeoutInMillis) throws InterruptedException {
+        checkPermits(permits);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (takeFast(permits)) {
+            return true;
+        }
+        if (timeoutInMillis <= 0) {
+            return false;
+        }
+        return awaitPermits(permits, true, TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+    }
+
+    @Override
+    public void release() {
+        release(1);
+    }
+
+    /*
+      The permits are published before waiterCount is read, and a new waiter is counted before it looks
+      at the permits, so either the waiter sees the permits or we see the waiter.
+     */
+    @Override
+    public void release(int permits) {
+        checkPermits(permits);
+        this.permits.getAndAdd(homeStripe() * PADDING, permits);
+        if (waiterCount != 0) {
+            lock.lock();
+            try {
+                grantWaiters();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int availablePermits() {
+        long available = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            available += permits.get(stripe * PADDING);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, available);
+    }
+
+    public int getQueueLength() {
+        return waiterCount;
+    }
+
+    private boolean takeFast(int count) {
+        if (waiterCount != 0) {
+            return false;
+        }
+        int home = homeStripe();
+        if (takeFrom(home, count)) {
+            return true;
+        }
+        for (int i = 1; i <= stripeMask; i++) {
+            if (takeFrom((home + i) & stripeMask, count)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean takeFrom(int stripe, int count) {
+        int index = stripe * PADDING;
+        long available;
+        do {
+            available = permits.get(index);
+            if (available < count) {
+                return false;
+            }
+        } while (!permits.compareAndSet(index, available, available - count));
+        return true;
+    }
+
+    // Lock held. Collects the permits from several stripes, or gives back what it took if there aren't enough
+    private boolean takeAcross(int count) {
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            if (takeFrom(stripe, count)) {
+                return true;
+            }
+        }
+        if (stripeMask == 0) {
+            return false;
+        }
+        long needed = count;
+        for (int stripe = 0; stripe <= stripeMask && needed > 0; stripe++) {
+            int index = stripe * PADDING;
+            long available;
+            long taken;
+            do {
+                available = permits.get(index);
+                taken = Math.min(available, needed);
+            } while (taken > 0 && !permits.compareAndSet(index, available, available - taken));
+            needed -= taken;
+        }
+        if (needed == 0) {
+            return true;
+        }
+        permits.getAndAdd(homeStripe() * PADDING, count - needed);
+        return false;
+    }
+
+    // Lock held. Strict FIFO, a head that can't be satisfied yet holds back everyone behind it
+    private void grantWaiters() {
+        Waiter head;
+        while ((head = waiters.peekFirst()) != null && takeAcross(head.permits)) {
+            waiters.pollFirst();
+            waiterCount = waiters.size();
+            head.granted = true;
+            LockSupport.unpark(head.thread);
+        }
+    }
+
+    private boolean awaitPermits(int count, boolean timed, long timeoutNanos) throws InterruptedException {
+        Waiter waiter = new Waiter(Thread.currentThread(), count);
+        lock.lock();
+        try {
+            waiters.addLast(waiter);
+            waiterCount = waiters.size();
+            // Permits may have been released between our failed fast path and joining the queue
+            grantWaiters();
+        } finally {
+            lock.unlock();
+        }
+
+        long deadline = timed ? System.nanoTime() + timeoutNanos : 0;
+        while (!waiter.granted) {
+            if (timed) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return !cancel(waiter);
+                }
+                LockSupport.parkNanos(this, remainingNanos);
+            } else {
+                LockSupport.park(this);
+            }
+            if (Thread.interrupted()) {
+                // Granted just before the interrupt, give the permits back instead of keeping them
+                if (!cancel(waiter)) {
+                    release(count);
+                }
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    // Returns false if the waiter was granted its permits before it could be taken out of the queue
+    private boolean cancel(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiter.granted) {
+                return false;
+            }
+            waiters.remove(waiter);
+            waiterCount = waiters.size();
+            // The waiter may have been the head holding back smaller requests
+            grantWaiters();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int homeStripe() {
+        if (stripeMask == 0) {
+            return 0;
+        }
+        long id = Thread.currentThread().threadId();
+        return (int) (id ^ (id >>> 16)) * 0x9e3779b9 >>> 16 & stripeMask;
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+    }
+
+    private static class Waiter {
+        private final Thread thread;
+        private final int permits;
+        private volatile boolean granted;
+
+        private Waiter(Thread thread, int permits) {
+            this.thread = thread;
+            this.permits = permits;
+        }
+    }
+
+    public static class Builder {
+        private int permits;
+        private int stripes = 1;
+
+        public Builder withPermits(int permits) {
+            this.permits = permits;
+            return this;
+        }
+
+        // Worth it on machines with many cores hammering the same semaphore, 1 (the default) otherwise
+        public Builder withStripes(int stripes) {
+            this.stripes = stripes;
+            return this;
+        }
+
+        public ScalableSemaphore build() {
+            validate();
+            return new ScalableSemaphore(this);
+        }
+
+        private void validate() {
+            if (permits < 0) {
+                throw new IllegalArgumentException("Permits cannot be negative");
+            }
+            if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+                throw new IllegalArgumentException("Stripes must be a positive power of two");
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package semaphore.benchmark;
+
+import semaphore.ScalableSemaphore;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Acquire/release throughput of ScalableSemaphore against java.util.concurrent.Semaphore, run with
+ *   java semaphore.benchmark.SemaphoreBenchmark
+ * <p>
+ * Every thread loops acquire(); release(). UNCONTENDED has a permit for every thread, so nobody ever waits
+ * and the numbers show the cost of the fast path (and of CAS traffic on a shared counter as threads are
+ * added). CONTENDED has half as many permits as threads, so half of the acquires queue and park.
+ * <p>
+ * System properties: bench.warmupMillis (default 500), bench.measureMillis (default 1000),
+ * bench.threads (default 1,2,4,8,16).
+ */
+public class SemaphoreBenchmark {
+    private enum Regime { UNCONTENDED, CONTENDED }
+
+    private interface Gate {
+        void acquire() throws InterruptedException;
+
+        void release();
+    }
+
+    private static volatile int phase;
+
+    public static void main(String[] args) throws InterruptedException {
+        long warmupMillis = Long.getLong("bench.warmupMillis", 500);
+        long measureMillis = Long.getLong("bench.measureMillis", 1000);
+        int[] threadCounts = Arrays.stream(System.getProperty("bench.threads", "1,2,4,8,16").split(","))
+                .mapToInt(count -> Integer.parseInt(count.trim()))
+                .toArray();
+        int stripes = Math.max(2, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+
+        System.out.printf("%-22s %-12s %7s %14s%n", "semaphore", "regime", "threads", "ops/s");
+        for (Regime regime : Regime.values()) {
+            for (int threads : threadCounts) {
+                int permits = regime == Regime.UNCONTENDED ? threads : Math.max(1, threads / 2);
+                ScalableSemaphore scalable = new ScalableSemaphore.Builder().withPermits(permits).build();
+                run("Scalable", regime, threads, gate(scalable), warmupMillis, measureMillis);
+
+                ScalableSemaphore striped = new ScalableSemaphore.Builder()
+                        .withPermits(permits)
+                        .withStripes(stripes)
+                        .build();
+                run("Scalable(" + stripes + " stripes)", regime, threads, gate(striped), warmupMillis, measureMillis);
+
+                Semaphore unfair = new Semaphore(permits);
+                run("j.u.c.Semaphore", regime, threads, gate(unfair), warmupMillis, measureMillis);
+
+                Semaphore fair = new Semaphore(permits, true);
+                run("j.u.c.Semaphore(fair)", regime, threads, gate(fair), warmupMillis, measureMillis);
+            }
+        }
+    }
+
+    private static Gate gate(ScalableSemaphore semaphore) {
+        return new Gate() {
+            @Override
+            public void acquire() throws InterruptedException {
+                semaphore.acquire();
+            }
+
+            @Override
+            public void release() {
+                semaphore.release();
+            }
+        };
+    }
+
+    private static Gate gate(Semaphore semaphore) {
+        return new Gate() {
+            @Override
+            public void acquire() throws InterruptedException {
+                semaphore.acquire();
+            }
+
+            @Override
+            public void release() {
+                semaphore.release();
+            }
+        };
+    }
+
+    private static void run(String name, Regime regime, int threads, Gate gate,
+                            long warmupMillis, long measureMillis) throws InterruptedException {
+        long[] ops = new long[threads];
+        CountDownLatch done = new CountDownLatch(threads);
+        phase = 0;
+
+        for (int i = 0; i < threads; i++) {
+            final int id = i;
+            Thread worker = new Thread(() -> {
+                try {
+                    while (phase == 0) {
+                        gate.acquire();
+                        gate.release();
+                    }
+                    long count = 0;
+                    while (phase == 1) {
+                        gate.acquire();
+                        gate.release();
+                        count++;
+                    }
+                    ops[id] = count;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "bench-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        Thread.sleep(warmupMillis);
+        phase = 1;
+        long start = System.nanoTime();
+        Thread.sleep(measureMillis);
+        phase = 2;
+        long elapsedNanos = System.nanoTime() - start;
+        done.await();
+
+        System.out.printf("%-22s %-12s %7d %14.0f%n",
+                name, regime, threads, Arrays.stream(ops).sum() / (elapsedNanos / 1e9));
+    }
+}
@@ -0,0 +1,14 @@
+package threadpool;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+public interface IThreadPool extends Executor {
+    <T> Future<T> submit(Callable<T> task);
+    void shutdown();
+    List<Runnable> shutdownNow();
+    boolean awaitTermination(long timeoutInMillis) throws InterruptedException;
+    boolean isShutdown();
+}
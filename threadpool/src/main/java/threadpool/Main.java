@@ -0,0 +1,41 @@
+package threadpool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Main {
+    public static void main(String[] args) throws Exception {
+        WorkStealingThreadPool pool = new WorkStealingThreadPool.Builder()
+                .withCorePoolSize(4)
+                .withMaxPoolSize(8)
+                .withQueueCapacity(16)
+                .withRejectionPolicy(RejectionPolicy.CALLER_RUNS)
+                .build();
+
+        // Tasks submitted from outside go through the bounded submission queue
+        Future<String> future = pool.submit(() -> Thread.currentThread().getName() + " ran a submitted task");
+        System.out.println(future.get());
+
+        // Tasks spawning tasks stay on the workers' own deques and get stolen by idle workers
+        int depth = 16;
+        AtomicLong leaves = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(1 << depth);
+        pool.execute(() -> split(pool, depth, leaves, done));
+        done.await();
+        System.out.println("Leaves computed: " + leaves.get() + " with " + pool.getPoolSize() + " workers");
+
+        pool.shutdown();
+        System.out.println("Terminated: " + pool.awaitTermination(5000));
+    }
+
+    private static void split(WorkStealingThreadPool pool, int depth, AtomicLong leaves, CountDownLatch done) {
+        if (depth == 0) {
+            leaves.incrementAndGet();
+            done.countDown();
+            return;
+        }
+        pool.execute(() -> split(pool, depth - 1, leaves, done));
+        pool.execute(() -> split(pool, depth - 1, leaves, done));
+    }
+}
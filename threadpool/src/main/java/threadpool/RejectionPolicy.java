@@ -0,0 +1,8 @@
+package threadpool;
+
+// What to do with a task when the submission queue is full and the pool can't grow any further
+public enum RejectionPolicy {
+    ABORT,       // throw RejectedExecutionException
+    CALLER_RUNS, // run it on the submitting thread, which also slows the producer down
+    DISCARD      // drop it silently
+}
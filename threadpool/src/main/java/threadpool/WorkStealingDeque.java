@@ -0,0 +1,100 @@
+package threadpool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Chase-Lev work stealing deque.
+ * The owning worker pushes and pops at the bottom (LIFO, cache friendly) without any CAS, other workers
+ * steal from the top (FIFO, oldest and usually largest tasks first) with a single CAS on top. The owner only
+ * races the thieves when one item is left.
+ * <p>
+ * push and pop must only be called by the owner thread, steal by anyone.
+ */
+public class WorkStealingDeque<T> {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final AtomicLong top = new AtomicLong();
+    // Written only by the owner, volatile so thieves see the items published before it
+    private volatile long bottom;
+    private volatile AtomicReferenceArray<T> array = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+    public void push(T item) {
+        long b = bottom;
+        long t = top.get();
+        AtomicReferenceArray<T> a = array;
+        if (b - t >= a.length() - 1) {
+            a = grow(a, t, b);
+        }
+        a.set(indexOf(a, b), item);
+        bottom = b + 1;
+    }
+
+    public T pop() {
+        long b = bottom - 1;
+        AtomicReferenceArray<T> a = array;
+        // Volatile write followed by volatile read, so thieves and owner can't both miss each other
+        bottom = b;
+        long t = top.get();
+        if (t > b) {
+            // Was empty
+            bottom = t;
+            return null;
+        }
+        int index = indexOf(a, b);
+        T item = a.get(index);
+        if (t < b) {
+            a.set(index, null);
+            return item;
+        }
+        // Last item, a thief may be going for it as well
+        boolean won = top.compareAndSet(t, t + 1);
+        bottom = t + 1;
+        if (!won) {
+            return null;
+        }
+        a.set(index, null);
+        return item;
+    }
+
+    // Returns null when empty or when another thief got there first, callers just move on to the next victim
+    public T steal() {
+        long t = top.get();
+        long b = bottom;
+        if (t >= b) {
+            return null;
+        }
+        AtomicReferenceArray<T> a = array;
+        int index = indexOf(a, t);
+        T item = a.get(index);
+        if (!top.compareAndSet(t, t + 1)) {
+            return null;
+        }
+        // Don't keep the task reachable until the owner wraps around. Conditional, as by now the owner may
+        // already have reused the slot for a new item
+        a.compareAndSet(index, item, null);
+        return item;
+    }
+
+    public boolean isEmpty() {
+        return bottom - top.get() <= 0;
+    }
+
+    public int size() {
+        return (int) Math.max(0, bottom - top.get());
+    }
+
+    // Old array is left intact, thieves still reading it get the same items
+    private AtomicReferenceArray<T> grow(AtomicReferenceArray<T> old, long t, long b) {
+        AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(old.length() * 2);
+        for (long i = t; i < b; i++) {
+            grown.set(indexOf(grown, i), old.get(indexOf(old, i)));
+        }
+        array = grown;
+        return grown;
+    }
+
+    private static int indexOf(AtomicReferenceArray<?> a, long position) {
+        return (int) (position & (a.length() - 1));
+    }
+}
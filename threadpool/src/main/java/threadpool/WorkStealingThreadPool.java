@@ -0,0 +1,427 @@
+package threadpool;
+
+import blockingqueue.BlockingQueueWithLock;
+import blockingqueue.IBlockingQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread pool where every worker has its own WorkStealingDeque.
+ * <p>
+ * Tasks submitted from inside a worker go to that worker's deque, so fine-grained tasks spawning more tasks
+ * never touch a shared lock. Tasks from outside go through a bounded IBlockingQueue, which is where
+ * backpressure and the rejection policy kick in. A worker looks for work in its own deque first, then the
+ * submission queue, then steals from a random victim.
+ * <p>
+ * Idle workers spin briefly on a work signal (work often shows up within microseconds) before parking, and
+ * never take the submission queue's lock to find out whether it has anything. Workers above the core size exit
+ * after keepAlive without work.
+ */
+public class WorkStealingThreadPool implements IThreadPool {
+    private static final int SPIN_TRIES = 64;
+
+    private final int corePoolSize;
+    private final int maxPoolSize;
+    private final long keepAliveNanos;
+    private final RejectionPolicy rejectionPolicy;
+    private final IBlockingQueue<Runnable> submissionQueue;
+    // Tasks in the submission queue, so idle workers can check it without its (fair) lock
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+    // Bumped whenever work is published, spinning workers watch it instead of polling for work
+    private final AtomicLong workSignals = new AtomicLong();
+    private final CopyOnWriteArrayList<Worker> workers = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger workerCount = new AtomicInteger();
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private final ReentrantLock terminationLock = new ReentrantLock();
+    private final Condition terminated = terminationLock.newCondition();
+    private volatile boolean isShutdown;
+
+    private WorkStealingThreadPool(Builder builder) {
+        this.corePoolSize = builder.corePoolSize;
+        this.maxPoolSize = builder.maxPoolSize;
+        this.keepAliveNanos = TimeUnit.MILLISECONDS.toNanos(builder.keepAliveMillis);
+        this.rejectionPolicy = builder.rejectionPolicy;
+        this.submissionQueue = new BlockingQueueWithLock<>(builder.queueCapacity);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("Cannot execute null task");
+        }
+        Thread current = Thread.currentThread();
+        if (current instanceof Worker worker && worker.pool == this) {
+            // Fast path: no shared state touched, others will steal it if we are busy.
+            // Still accepted during a graceful shutdown, the workers drain their deques before exiting
+            worker.deque.push(task);
+            signalWork();
+            return;
+        }
+        if (isShutdown) {
+            reject(task);
+            return;
+        }
+        if (submissionQueue.offer(task)) {
+            queuedTasks.incrementAndGet();
+            // Shut down since the check above, the workers may already be gone. Take it back unless one got it
+            if (isShutdown && submissionQueue.remove(task)) {
+                queuedTasks.decrementAndGet();
+                reject(task);
+                return;
+            }
+            signalWork();
+            return;
+        }
+        // Queue is full, grow towards the max and hand the task straight to the new worker
+        if (!isShutdown && addWorker(maxPoolSize, task)) {
+            return;
+        }
+        reject(task);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public void shutdown() {
+        isShutdown = true;
+        // Wake everyone up, they drain the remaining work and exit
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        checkTerminated();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        isShutdown = true;
+        List<Runnable> pending = new ArrayList<>();
+        Runnable task;
+        while ((task = submissionQueue.poll()) != null) {
+            queuedTasks.decrementAndGet();
+            pending.add(task);
+        }
+        for (Worker worker : workers) {
+            while ((task = worker.deque.steal()) != null) {
+                pending.add(task);
+            }
+            worker.interrupt();
+        }
+        checkTerminated();
+        return pending;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeoutInMillis) throws InterruptedException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+        terminationLock.lock();
+        try {
+            while (!isTerminated()) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = terminated.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            terminationLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return isShutdown;
+    }
+
+    public boolean isTerminated() {
+        return isShutdown && workerCount.get() == 0;
+    }
+
+    public int getPoolSize() {
+        return workerCount.get();
+    }
+
+    // The first task, if any, is run by the new worker before it looks anywhere else
+    private boolean addWorker(int limit, Runnable firstTask) {
+        int count;
+        do {
+            count = workerCount.get();
+            if (count >= limit) {
+                return false;
+            }
+        } while (!workerCount.compareAndSet(count, count + 1));
+        Worker worker = new Worker(this, "pool-worker-" + workerIds.incrementAndGet(), firstTask);
+        workers.add(worker);
+        worker.start();
+        return true;
+    }
+
+    private void reject(Runnable task) {
+        switch (rejectionPolicy) {
+            case ABORT -> throw new RejectedExecutionException(
+                    isShutdown ? "Thread pool is shutdown" : "Thread pool submission queue is full");
+            case CALLER_RUNS -> {
+                if (!isShutdown) {
+                    task.run();
+                }
+            }
+            case DISCARD -> {
+            }
+        }
+    }
+
+    // Wakes an idle worker for new work, or starts one while the pool is still below its core size
+    private void signalWork() {
+        workSignals.incrementAndGet();
+        Worker idle = idleWorkers.poll();
+        if (idle != null) {
+            LockSupport.unpark(idle);
+        } else if (workerCount.get() < corePoolSize) {
+            addWorker(corePoolSize, null);
+        }
+    }
+
+    private Runnable findTask(Worker self) {
+        Runnable task = self.deque.pop();
+        if (task != null) {
+            return task;
+        }
+        if (queuedTasks.get() > 0) {
+            task = submissionQueue.poll();
+            if (task != null) {
+                queuedTasks.decrementAndGet();
+                return task;
+            }
+        }
+        return steal(self);
+    }
+
+    // Random starting victim, so thieves spread out instead of all hammering the same deque
+    private Runnable steal(Worker self) {
+        Object[] snapshot = workers.toArray();
+        int start = ThreadLocalRandom.current().nextInt(Math.max(1, snapshot.length));
+        for (int i = 0; i < snapshot.length; i++) {
+            Worker victim = (Worker) snapshot[(start + i) % snapshot.length];
+            if (victim != self) {
+                Runnable task = victim.deque.steal();
+                if (task != null) {
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean hasWork(Worker self) {
+        if (!self.deque.isEmpty() || queuedTasks.get() > 0) {
+            return true;
+        }
+        for (Worker worker : workers) {
+            if (!worker.deque.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+      Returns false when the worker should exit.
+      The worker registers as idle *before* its last look for work, and submitters publish the task
+      *before* looking for an idle worker, so one of the two always sees the other and no wakeup is lost.
+     */
+    private boolean awaitWork(Worker self) {
+        // Work published before this point is caught by the hasWork below, after it by the signal
+        long signals = workSignals.get();
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (workSignals.get() != signals) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        idleWorkers.add(self);
+        try {
+            while (true) {
+                if (hasWork(self)) {
+                    return true;
+                }
+                if (isShutdown || self.isInterrupted()) {
+                    return false;
+                }
+                boolean timed = workerCount.get() > corePoolSize;
+                long parkStart = System.nanoTime();
+                if (timed) {
+                    LockSupport.parkNanos(this, keepAliveNanos);
+                } else {
+                    LockSupport.park(this);
+                }
+                boolean timedOut = timed && System.nanoTime() - parkStart >= keepAliveNanos;
+                // Leave the idle list before the last look for work. If a submitter already took us off it,
+                // its unpark is meant for us and retiring now would lose that wakeup
+                if (timedOut && idleWorkers.remove(self)) {
+                    if (!hasWork(self) && retireWorker()) {
+                        self.retired = true;
+                        return false;
+                    }
+                }
+                // Unparked by a submitter (which already removed us) or spuriously, register again either way
+                if (!idleWorkers.contains(self)) {
+                    idleWorkers.add(self);
+                }
+            }
+        } finally {
+            idleWorkers.remove(self);
+        }
+    }
+
+    // Drops a worker above the core size, the CAS makes sure concurrent retirements don't go below it
+    private boolean retireWorker() {
+        int count;
+        do {
+            count = workerCount.get();
+            if (count <= corePoolSize) {
+                return false;
+            }
+        } while (!workerCount.compareAndSet(count, count - 1));
+        return true;
+    }
+
+    private void onWorkerExit(Worker worker, boolean alreadyCounted) {
+        workers.remove(worker);
+        if (!alreadyCounted) {
+            workerCount.decrementAndGet();
+        }
+        checkTerminated();
+    }
+
+    private void checkTerminated() {
+        if (isTerminated()) {
+            terminationLock.lock();
+            try {
+                terminated.signalAll();
+            } finally {
+                terminationLock.unlock();
+            }
+        }
+    }
+
+    private static class Worker extends Thread {
+        private final WorkStealingThreadPool pool;
+        private final WorkStealingDeque<Runnable> deque = new WorkStealingDeque<>();
+        // Set when a keep-alive timeout has already taken this worker out of the count
+        private boolean retired;
+        private Runnable firstTask;
+
+        private Worker(WorkStealingThreadPool pool, String name, Runnable firstTask) {
+            super(name);
+            this.pool = pool;
+            this.firstTask = firstTask;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (firstTask != null) {
+                    Runnable task = firstTask;
+                    firstTask = null;
+                    runTask(task);
+                }
+                while (true) {
+                    Runnable task = pool.findTask(this);
+                    if (task != null) {
+                        runTask(task);
+                        continue;
+                    }
+                    if (!pool.awaitWork(this)) {
+                        break;
+                    }
+                }
+            } finally {
+                pool.onWorkerExit(this, retired);
+            }
+        }
+
+        private void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // A failing task must not take the worker (and the tasks in its deque) down with it
+                getUncaughtExceptionHandler().uncaughtException(this, e);
+            }
+        }
+    }
+
+    public static class Builder {
+        private int corePoolSize = Runtime.getRuntime().availableProcessors();
+        private int maxPoolSize = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = 1024;
+        private long keepAliveMillis = 60_000;
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+        public Builder withCorePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+            return this;
+        }
+
+        public Builder withMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+            return this;
+        }
+
+        public Builder withQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder withKeepAliveMillis(long keepAliveMillis) {
+            this.keepAliveMillis = keepAliveMillis;
+            return this;
+        }
+
+        public Builder withRejectionPolicy(RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+            return this;
+        }
+
+        public WorkStealingThreadPool build() {
+            validate();
+            return new WorkStealingThreadPool(this);
+        }
+
+        private void validate() {
+            if (corePoolSize <= 0) {
+                throw new IllegalArgumentException("Core pool size must be positive");
+            }
+            if (maxPoolSize < corePoolSize) {
+                throw new IllegalArgumentException("Max pool size must be at least the core pool size");
+            }
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("Queue capacity must be positive");
+            }
+            if (keepAliveMillis <= 0) {
+                throw new IllegalArgumentException("Keep alive must be positive");
+            }
+            if (rejectionPolicy == null) {
+                throw new IllegalArgumentException("Rejection policy is required");
+            }
+        }
+    }
+}
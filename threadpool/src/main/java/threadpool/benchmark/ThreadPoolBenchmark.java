@@ -0,0 +1,95 @@
+package threadpool.benchmark;
+
+import threadpool.RejectionPolicy;
+import threadpool.WorkStealingThreadPool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares WorkStealingThreadPool with ThreadPoolExecutor and ForkJoinPool on fine-grained work, run with
+ *   java threadpool.benchmark.ThreadPoolBenchmark
+ * <p>
+ * The workload is a binary tree of tasks: every task spawns two children until the leaves, which do a small
+ * amount of arithmetic. All tasks after the root are submitted from pool threads, which is where a single
+ * shared queue (ThreadPoolExecutor) turns into the bottleneck and per-worker deques don't.
+ * <p>
+ * System properties: bench.depth (default 20, i.e. ~2M tasks), bench.leafWork (default 100 iterations),
+ * bench.rounds (default 5, the first one is warmup), bench.threads (default: available processors).
+ */
+public class ThreadPoolBenchmark {
+    private static volatile long blackhole;
+
+    public static void main(String[] args) throws InterruptedException {
+        int depth = Integer.getInteger("bench.depth", 20);
+        int leafWork = Integer.getInteger("bench.leafWork", 100);
+        int rounds = Integer.getInteger("bench.rounds", 5);
+        int threads = Integer.getInteger("bench.threads", Runtime.getRuntime().availableProcessors());
+
+        System.out.printf("%d threads, %d tasks per round, %d iterations per leaf%n",
+                threads, (1 << (depth + 1)) - 1, leafWork);
+        System.out.printf("%-20s %12s %14s%n", "pool", "best (ms)", "tasks/s");
+
+        WorkStealingThreadPool workStealing = new WorkStealingThreadPool.Builder()
+                .withCorePoolSize(threads)
+                .withMaxPoolSize(threads)
+                .withRejectionPolicy(RejectionPolicy.CALLER_RUNS)
+                .build();
+        run("WorkStealing", workStealing, depth, leafWork, rounds);
+        workStealing.shutdown();
+        workStealing.awaitTermination(10_000);
+
+        ExecutorService threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        run("ThreadPoolExecutor", threadPoolExecutor, depth, leafWork, rounds);
+        threadPoolExecutor.shutdown();
+        threadPoolExecutor.awaitTermination(10, TimeUnit.SECONDS);
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(threads);
+        run("ForkJoinPool", forkJoinPool, depth, leafWork, rounds);
+        forkJoinPool.shutdown();
+        forkJoinPool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static void run(String name, Executor executor, int depth, int leafWork, int rounds)
+            throws InterruptedException {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicLong pendingLeaves = new AtomicLong(1L << depth);
+            long start = System.nanoTime();
+            executor.execute(() -> split(executor, depth, leafWork, pendingLeaves, done));
+            done.await();
+            long elapsed = System.nanoTime() - start;
+            // First round only warms up the JIT and the worker threads
+            if (round > 0) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        long tasks = (1L << (depth + 1)) - 1;
+        System.out.printf("%-20s %12.1f %14.0f%n", name, best / 1e6, tasks / (best / 1e9));
+    }
+
+    private static void split(Executor executor, int depth, int leafWork, AtomicLong pendingLeaves,
+                              CountDownLatch done) {
+        if (depth == 0) {
+            long sum = 0;
+            for (int i = 0; i < leafWork; i++) {
+                sum += i * (long) i ^ depth;
+            }
+            blackhole = sum;
+            if (pendingLeaves.decrementAndGet() == 0) {
+                done.countDown();
+            }
+            return;
+        }
+        executor.execute(() -> split(executor, depth - 1, leafWork, pendingLeaves, done));
+        executor.execute(() -> split(executor, depth - 1, leafWork, pendingLeaves, done));
+    }
+}